@@ -0,0 +1,559 @@
+/**
+ * A BST whose nodes live in parallel arrays instead of separate BSTNode objects
+ *
+ * A node is an int index into the arrays below, and index 0 (NIL) stands for the empty
+ * subtree. With no per-node object headers or child references, the links, heights and
+ * sizes of n entries take four primitive arrays, which the garbage collector scans as
+ * single objects. The slots of removed nodes are kept on a free list, threaded through
+ * the left array, and reused by later puts.
+ *
+ * It implements the core of the BST API with the same signatures and exceptions: put(),
+ * get(), remove(), size(), inOrder(), reverseOrder(), kSmallest(), kLargest(), select(),
+ * rank(), predecessor() and successor(). The bulk, range, entry, poll and snapshot
+ * operations of BST, such as putAll(), countInRange(), range(), floorEntry(), pollFirst(),
+ * removeRange(), forEachInOrder() and snapshot(), are not provided.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ArrayBST<K extends Comparable<? super K>, V> {
+    private static final int NIL = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] left;
+    private int[] right;
+    private int[] size; // The number of nodes in the subtree rooted at each node
+    private byte[] height; // -1 at NIL, so no lookup needs a null check
+
+    private int root = NIL;
+    private int freeHead = NIL; // The first reusable slot, whose left entry links to the next one
+    private int used = 1; // Slots below this index have been handed out at least once
+    private int removed = NIL; // The node unlinked by the last removeHelper() call
+    private final int[] path = new int[BST.MAX_HEIGHT]; // Search path of put()
+
+    /**
+     * Initializes an empty tree with room for 16 entries before its arrays grow.
+     */
+    public ArrayBST() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes an empty tree with room for the given number of entries before its arrays grow.
+     *
+     * @param capacity  the number of entries to allocate for
+     * @throws          IllegalArgumentException if capacity < 0
+     */
+    public ArrayBST(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException();
+
+        keys = new Object[capacity + 1];
+        values = new Object[capacity + 1];
+        left = new int[capacity + 1];
+        right = new int[capacity + 1];
+        size = new int[capacity + 1];
+        height = new byte[capacity + 1];
+        height[NIL] = -1;
+    }
+
+    /**
+     * Adds a new entry to the tree or updates the value of an existing key in the tree
+     *
+     * Time Complexity: O(log n) amortized
+     *
+     * @param key    the key of the entry to add or update
+     * @param value  the value associated with key
+     * @throws       IllegalArgumentException if key or value is null
+     */
+    public void put(K key, V value) throws IllegalArgumentException
+    {
+        if (key == null || value == null)
+            throw new IllegalArgumentException();
+        if (root == NIL)
+        {
+            root = allocate(key, value);
+            return;
+        }
+
+        int depth = 0;
+        int node = root;
+        while (true)
+        {
+            int cmp = key.compareTo(key(node));
+            if (cmp == 0)
+            {
+                values[node] = value;
+                return;
+            }
+
+            path[depth++] = node;
+            int next = cmp < 0 ? left[node] : right[node];
+            if (next == NIL)
+            {
+                int leaf = allocate(key, value);
+                if (cmp < 0)
+                    left[node] = leaf;
+                else
+                    right[node] = leaf;
+                break;
+            }
+            node = next;
+        }
+
+        while (--depth > 0)
+        {
+            int child = path[depth];
+            int parent = path[depth - 1];
+            int balanced = balance(child);
+            if (left[parent] == child)
+                left[parent] = balanced;
+            else
+                right[parent] = balanced;
+        }
+        root = balance(path[0]);
+    }
+
+
+    /**
+     * Returns the value associated with a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     the value associated with key if key is in the tree, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        int node = root;
+        while (node != NIL)
+        {
+            int cmp = key.compareTo(key(node));
+            if (cmp == 0)
+                return (V) values[node];
+            node = cmp < 0 ? left[node] : right[node];
+        }
+        return null;
+    }
+
+
+    /**
+     * Removes the entry of a given key and returns its value, freeing its slot for reuse
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key of the entry to remove
+     * @return     the value associated with key if key was in the tree, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        root = removeHelper(root, key);
+        int match = removed;
+        if (match == NIL)
+            return null;
+
+        removed = NIL;
+        V value = (V) values[match];
+        free(match);
+        return value;
+    }
+    private int removeHelper(int node, K key)
+    {
+        if (node == NIL)
+            return NIL;
+
+        int cmp = key.compareTo(key(node));
+        if (cmp < 0)
+            left[node] = removeHelper(left[node], key);
+        else if (cmp > 0)
+            right[node] = removeHelper(right[node], key);
+        else
+        {
+            removed = node;
+            if (left[node] == NIL)
+                return right[node];
+            if (right[node] == NIL)
+                return left[node];
+
+            int successor = right[node];
+            while (left[successor] != NIL)
+                successor = left[successor];
+            right[successor] = removeMin(right[node]);
+            left[successor] = left[node];
+            node = successor;
+        }
+
+        return balance(node);
+    }
+    private int removeMin(int node)
+    {
+        if (left[node] == NIL)
+            return right[node];
+
+        left[node] = removeMin(left[node]);
+        return balance(node);
+    }
+
+
+    /**
+     * Returns the number of entries in the tree
+     *
+     * @return  the size of the tree
+     */
+    public int size()
+    {
+        return size[root];
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in ascending order
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  a list consisting of all keys in the tree in the ascending order
+     */
+    public List<K> inOrder()
+    {
+        ArrayList<K> order = new ArrayList<>(size[root]);
+        inOrderHelper(root, order, size[root]);
+        return order;
+    }
+    private void inOrderHelper(int node, ArrayList<K> order, int limit)
+    {
+        if (node == NIL || order.size() == limit)
+            return;
+
+        inOrderHelper(left[node], order, limit);
+        if (order.size() < limit)
+        {
+            order.add(key(node));
+            inOrderHelper(right[node], order, limit);
+        }
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in descending order
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  the list of all keys in the tree in descending order
+     */
+    public List<K> reverseOrder()
+    {
+        ArrayList<K> order = new ArrayList<>(size[root]);
+        reverseOrderHelper(root, order, size[root]);
+        return order;
+    }
+    private void reverseOrderHelper(int node, ArrayList<K> order, int limit)
+    {
+        if (node == NIL || order.size() == limit)
+            return;
+
+        reverseOrderHelper(right[node], order, limit);
+        if (order.size() < limit)
+        {
+            order.add(key(node));
+            reverseOrderHelper(left[node], order, limit);
+        }
+    }
+
+
+    /**
+     * Finds and returns the k smallest keys in ascending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of smallest keys to find
+     * @return   the list of k smallest keys in ascending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public List<K> kSmallest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size[root])
+            throw new IllegalArgumentException();
+
+        ArrayList<K> smallest = new ArrayList<>(k);
+        inOrderHelper(root, smallest, k);
+        return smallest;
+    }
+
+
+    /**
+     * Finds and returns the k largest keys in descending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of largest keys to find
+     * @return   the list of k largest keys in descending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public List<K> kLargest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size[root])
+            throw new IllegalArgumentException();
+
+        ArrayList<K> largest = new ArrayList<>(k);
+        reverseOrderHelper(root, largest, k);
+        return largest;
+    }
+
+
+    /**
+     * Finds and returns the key with exactly rank smaller keys in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param rank  the zero-based rank of the key to find
+     * @return      the key of the given rank
+     * @throws      IllegalArgumentException if rank < 0 or rank >= the size of the tree
+     */
+    public K select(int rank) throws IllegalArgumentException
+    {
+        if (rank < 0 || rank >= size[root])
+            throw new IllegalArgumentException();
+
+        int node = root;
+        while (true)
+        {
+            int leftSize = size[left[node]];
+            if (rank < leftSize)
+                node = left[node];
+            else if (rank > leftSize)
+            {
+                rank -= leftSize + 1;
+                node = right[node];
+            }
+            else
+                return key(node);
+        }
+    }
+
+
+    /**
+     * Returns the number of keys in the tree that are smaller than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the rank for
+     * @return     the number of keys smaller than key
+     * @throws     IllegalArgumentException if key is null
+     */
+    public int rank(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        int rank = 0;
+        int node = root;
+        while (node != NIL)
+        {
+            int cmp = key.compareTo(key(node));
+            if (cmp <= 0)
+                node = left[node];
+            else
+            {
+                rank += size[left[node]] + 1;
+                node = right[node];
+            }
+        }
+        return rank;
+    }
+
+
+    /**
+     * Finds and returns the largest key in the tree that is smaller than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the predecessor for
+     * @return     the predecessor of key if the predecessor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K predecessor(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        int node = root;
+        int match = NIL;
+        while (node != NIL)
+        {
+            if (key(node).compareTo(key) < 0)
+            {
+                match = node;
+                node = right[node];
+            }
+            else
+                node = left[node];
+        }
+        return match == NIL ? null : key(match);
+    }
+
+
+    /**
+     * Finds and returns the smallest key in the tree that is larger than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the successor for
+     * @return     the successor of key if the successor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K successor(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        int node = root;
+        int match = NIL;
+        while (node != NIL)
+        {
+            if (key(node).compareTo(key) > 0)
+            {
+                match = node;
+                node = left[node];
+            }
+            else
+                node = right[node];
+        }
+        return match == NIL ? null : key(match);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private K key(int node)
+    {
+        return (K) keys[node];
+    }
+
+
+    /**
+     * Takes a slot from the free list, or the next unused slot, growing the arrays when full
+     *
+     * @param key    the key of the new leaf
+     * @param value  the value of the new leaf
+     * @return       the index of the new leaf
+     */
+    private int allocate(K key, V value)
+    {
+        int node;
+        if (freeHead != NIL)
+        {
+            node = freeHead;
+            freeHead = left[node];
+        }
+        else
+        {
+            if (used == keys.length)
+                grow();
+            node = used++;
+        }
+
+        keys[node] = key;
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+        height[node] = 0;
+        return node;
+    }
+
+
+    /**
+     * Returns a slot to the free list, dropping its key and value references
+     *
+     * @param node  the index of the unlinked node
+     */
+    private void free(int node)
+    {
+        keys[node] = null;
+        values[node] = null;
+        left[node] = freeHead;
+        freeHead = node;
+    }
+
+
+    private void grow()
+    {
+        int capacity = keys.length + (keys.length >> 1) + 1;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+
+
+    private void update(int node)
+    {
+        height[node] = (byte) (1 + Math.max(height[left[node]], height[right[node]]));
+        size[node] = size[left[node]] + 1 + size[right[node]];
+    }
+
+
+    private int rotateRight(int node)
+    {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+
+    private int rotateLeft(int node)
+    {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+
+    /**
+     * Balances an imbalanced node by left and right rotations, as in BST.balance()
+     *
+     * @param node  the node to balance
+     * @return      the new root of the subtree after balance
+     */
+    private int balance(int node)
+    {
+        update(node);
+        int balanceFactor = height[left[node]] - height[right[node]];
+        if (balanceFactor > 1)
+        {
+            int child = left[node];
+            if (height[left[child]] < height[right[child]])
+                left[node] = rotateLeft(child);
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1)
+        {
+            int child = right[node];
+            if (height[right[child]] < height[left[child]])
+                right[node] = rotateRight(child);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+}
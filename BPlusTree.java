@@ -0,0 +1,691 @@
+/**
+ * A cache-conscious ordered map: a B+-tree with up to 64 entries per node
+ *
+ * A lookup in BST touches one node, and usually misses the cache, per level of a binary
+ * tree. This tree is about six times shallower at the same size, and each of its levels
+ * is a binary search over a contiguous array of key references. Entries live only in the
+ * leaves, which are linked in key order, so ordered scans walk arrays instead of chasing
+ * child pointers. Internal nodes keep the size of every child subtree, so select() and
+ * rank() run in O(log n) as they do on BST.
+ *
+ * The keys themselves are still boxed objects: each probe of the in-node binary search
+ * dereferences the key it compares with, which may miss the cache just as a BST node
+ * would. What the tree saves is the node and child-pointer loads of the levels it no
+ * longer has. Keeping the keys inline would take a specialization with primitive key
+ * arrays, as IntIntBST is for BST.
+ *
+ * It implements the core of the BST API with the same signatures and exceptions: put(),
+ * get(), remove(), size(), inOrder(), reverseOrder(), kSmallest(), kLargest(), select(),
+ * rank(), predecessor() and successor(). The bulk, range, entry and poll operations of
+ * BST, such as putAll(), countInRange(), range(), floorEntry(), pollFirst() and
+ * removeRange(), are not provided. It suits large, read-mostly maps.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BPlusTree<K extends Comparable<? super K>, V> {
+    private static final int MAX_ENTRIES = 64; // Entries per leaf and children per internal node
+    private static final int MIN_ENTRIES = MAX_ENTRIES / 2; // Every node but the root holds at least this many
+
+    private Node root = new Leaf();
+    private int size;
+    private Object promoted; // The smallest key of the node split off by the last insert() call
+    private boolean inserted; // Whether the last insert() call added an entry rather than updating one
+    private Object removedValue; // The value of the entry unlinked by the last delete() call
+    private boolean removed; // Whether the last delete() call found its key
+
+    /**
+     * Adds a new entry to the tree or updates the value of an existing key in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key    the key of the entry to add or update
+     * @param value  the value associated with key
+     * @throws       IllegalArgumentException if key or value is null
+     */
+    public void put(K key, V value) throws IllegalArgumentException
+    {
+        if (key == null || value == null)
+            throw new IllegalArgumentException();
+
+        Node sibling = insert(root, key, value);
+        if (inserted)
+            size++;
+        if (sibling != null)
+        {
+            Internal newRoot = new Internal();
+            newRoot.children[0] = root;
+            newRoot.children[1] = sibling;
+            newRoot.sizes[0] = sizeOf(root);
+            newRoot.sizes[1] = sizeOf(sibling);
+            newRoot.keys[0] = promoted;
+            newRoot.count = 2;
+            root = newRoot;
+        }
+        promoted = null;
+    }
+    private Node insert(Node node, K key, V value)
+    {
+        if (node instanceof Leaf)
+        {
+            Leaf leaf = (Leaf) node;
+            int index = lowerBound(leaf.keys, leaf.count, key);
+            if (index < leaf.count && key.compareTo(key(leaf.keys[index])) == 0)
+            {
+                leaf.values[index] = value;
+                inserted = false;
+                return null;
+            }
+
+            System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.count - index);
+            System.arraycopy(leaf.values, index, leaf.values, index + 1, leaf.count - index);
+            leaf.keys[index] = key;
+            leaf.values[index] = value;
+            leaf.count++;
+            inserted = true;
+            return leaf.count > MAX_ENTRIES ? splitLeaf(leaf) : null;
+        }
+
+        Internal internal = (Internal) node;
+        int child = upperBound(internal.keys, internal.count - 1, key);
+        Node sibling = insert(internal.children[child], key, value);
+        if (inserted)
+            internal.sizes[child]++;
+        if (sibling == null)
+            return null;
+
+        // Link the split-off sibling right after the child it came from
+        int moved = internal.count - child - 1;
+        System.arraycopy(internal.children, child + 1, internal.children, child + 2, moved);
+        System.arraycopy(internal.sizes, child + 1, internal.sizes, child + 2, moved);
+        System.arraycopy(internal.keys, child, internal.keys, child + 1, moved);
+        internal.children[child + 1] = sibling;
+        internal.sizes[child] = sizeOf(internal.children[child]);
+        internal.sizes[child + 1] = sizeOf(sibling);
+        internal.keys[child] = promoted;
+        internal.count++;
+        return internal.count > MAX_ENTRIES ? splitInternal(internal) : null;
+    }
+
+
+    /**
+     * Moves the upper half of an overfull leaf into a new leaf linked after it
+     *
+     * @param leaf  the leaf holding MAX_ENTRIES + 1 entries
+     * @return      the new leaf, whose smallest key is stored in promoted
+     */
+    private Leaf splitLeaf(Leaf leaf)
+    {
+        Leaf right = new Leaf();
+        int half = leaf.count / 2;
+        right.count = leaf.count - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.count);
+        System.arraycopy(leaf.values, half, right.values, 0, right.count);
+        clear(leaf.keys, half, leaf.count);
+        clear(leaf.values, half, leaf.count);
+        leaf.count = half;
+
+        right.next = leaf.next;
+        right.prev = leaf;
+        if (leaf.next != null)
+            leaf.next.prev = right;
+        leaf.next = right;
+        promoted = right.keys[0];
+        return right;
+    }
+
+
+    /**
+     * Moves the upper half of an overfull internal node into a new internal node
+     *
+     * @param node  the node holding MAX_ENTRIES + 1 children
+     * @return      the new node; the separator between the two is stored in promoted
+     */
+    private Internal splitInternal(Internal node)
+    {
+        Internal right = new Internal();
+        int half = node.count / 2;
+        right.count = node.count - half;
+        System.arraycopy(node.children, half, right.children, 0, right.count);
+        System.arraycopy(node.sizes, half, right.sizes, 0, right.count);
+        System.arraycopy(node.keys, half, right.keys, 0, right.count - 1);
+        promoted = node.keys[half - 1];
+        clear(node.children, half, node.count);
+        clear(node.keys, half - 1, node.count - 1);
+        node.count = half;
+        return right;
+    }
+
+
+    /**
+     * Returns the value associated with a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     the value associated with key if key is in the tree, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        Leaf leaf = leafFor(key);
+        int index = lowerBound(leaf.keys, leaf.count, key);
+        if (index < leaf.count && key.compareTo(key(leaf.keys[index])) == 0)
+            return (V) leaf.values[index];
+        return null;
+    }
+
+
+    /**
+     * Removes the entry of a given key and returns its value
+     *
+     * A node left with fewer than MIN_ENTRIES borrows from a sibling, or merges with it
+     * when the sibling has none to spare.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key of the entry to remove
+     * @return     the value associated with key if key was in the tree, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        delete(root, key);
+        if (!removed)
+            return null;
+
+        size--;
+        if (root instanceof Internal && root.count == 1)
+            root = ((Internal) root).children[0];
+        V value = (V) removedValue;
+        removed = false;
+        removedValue = null;
+        return value;
+    }
+    private void delete(Node node, K key)
+    {
+        if (node instanceof Leaf)
+        {
+            Leaf leaf = (Leaf) node;
+            int index = lowerBound(leaf.keys, leaf.count, key);
+            if (index == leaf.count || key.compareTo(key(leaf.keys[index])) != 0)
+                return;
+
+            removed = true;
+            removedValue = leaf.values[index];
+            System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.count - index - 1);
+            System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.count - index - 1);
+            leaf.count--;
+            leaf.keys[leaf.count] = null;
+            leaf.values[leaf.count] = null;
+            return;
+        }
+
+        Internal internal = (Internal) node;
+        int child = upperBound(internal.keys, internal.count - 1, key);
+        delete(internal.children[child], key);
+        if (!removed)
+            return;
+
+        internal.sizes[child]--;
+        if (internal.children[child].count < MIN_ENTRIES)
+            refill(internal, child);
+    }
+
+
+    /**
+     * Brings an underfull child back to MIN_ENTRIES by borrowing from or merging with a sibling
+     *
+     * @param parent  the parent of the underfull child
+     * @param child   the index of the underfull child
+     */
+    private void refill(Internal parent, int child)
+    {
+        if (child > 0 && parent.children[child - 1].count > MIN_ENTRIES)
+            borrowFromLeft(parent, child);
+        else if (child < parent.count - 1 && parent.children[child + 1].count > MIN_ENTRIES)
+            borrowFromRight(parent, child);
+        else if (child > 0)
+            merge(parent, child - 1);
+        else
+            merge(parent, child);
+    }
+
+
+    private void borrowFromLeft(Internal parent, int child)
+    {
+        Node node = parent.children[child];
+        Node left = parent.children[child - 1];
+        int moved;
+        if (node instanceof Leaf)
+        {
+            Leaf leaf = (Leaf) node;
+            Leaf from = (Leaf) left;
+            System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.count);
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.count);
+            from.count--;
+            leaf.keys[0] = from.keys[from.count];
+            leaf.values[0] = from.values[from.count];
+            from.keys[from.count] = null;
+            from.values[from.count] = null;
+            leaf.count++;
+            parent.keys[child - 1] = leaf.keys[0];
+            moved = 1;
+        }
+        else
+        {
+            Internal internal = (Internal) node;
+            Internal from = (Internal) left;
+            System.arraycopy(internal.children, 0, internal.children, 1, internal.count);
+            System.arraycopy(internal.sizes, 0, internal.sizes, 1, internal.count);
+            System.arraycopy(internal.keys, 0, internal.keys, 1, internal.count - 1);
+            from.count--;
+            internal.children[0] = from.children[from.count];
+            internal.sizes[0] = from.sizes[from.count];
+            internal.keys[0] = parent.keys[child - 1];
+            parent.keys[child - 1] = from.keys[from.count - 1];
+            from.children[from.count] = null;
+            from.keys[from.count - 1] = null;
+            internal.count++;
+            moved = internal.sizes[0];
+        }
+        parent.sizes[child - 1] -= moved;
+        parent.sizes[child] += moved;
+    }
+
+
+    private void borrowFromRight(Internal parent, int child)
+    {
+        Node node = parent.children[child];
+        Node right = parent.children[child + 1];
+        int moved;
+        if (node instanceof Leaf)
+        {
+            Leaf leaf = (Leaf) node;
+            Leaf from = (Leaf) right;
+            leaf.keys[leaf.count] = from.keys[0];
+            leaf.values[leaf.count] = from.values[0];
+            leaf.count++;
+            from.count--;
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count);
+            System.arraycopy(from.values, 1, from.values, 0, from.count);
+            from.keys[from.count] = null;
+            from.values[from.count] = null;
+            parent.keys[child] = from.keys[0];
+            moved = 1;
+        }
+        else
+        {
+            Internal internal = (Internal) node;
+            Internal from = (Internal) right;
+            internal.children[internal.count] = from.children[0];
+            internal.sizes[internal.count] = from.sizes[0];
+            internal.keys[internal.count - 1] = parent.keys[child];
+            internal.count++;
+            moved = from.sizes[0];
+            parent.keys[child] = from.keys[0];
+            from.count--;
+            System.arraycopy(from.children, 1, from.children, 0, from.count);
+            System.arraycopy(from.sizes, 1, from.sizes, 0, from.count);
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count - 1);
+            from.children[from.count] = null;
+            from.keys[from.count - 1] = null;
+        }
+        parent.sizes[child] += moved;
+        parent.sizes[child + 1] -= moved;
+    }
+
+
+    /**
+     * Merges the child after index into the child at index and unlinks it from the parent
+     *
+     * @param parent  the parent of both children
+     * @param index   the index of the left child of the pair
+     */
+    private void merge(Internal parent, int index)
+    {
+        Node node = parent.children[index];
+        Node right = parent.children[index + 1];
+        if (node instanceof Leaf)
+        {
+            Leaf leaf = (Leaf) node;
+            Leaf from = (Leaf) right;
+            System.arraycopy(from.keys, 0, leaf.keys, leaf.count, from.count);
+            System.arraycopy(from.values, 0, leaf.values, leaf.count, from.count);
+            leaf.count += from.count;
+            leaf.next = from.next;
+            if (from.next != null)
+                from.next.prev = leaf;
+        }
+        else
+        {
+            Internal internal = (Internal) node;
+            Internal from = (Internal) right;
+            internal.keys[internal.count - 1] = parent.keys[index];
+            System.arraycopy(from.children, 0, internal.children, internal.count, from.count);
+            System.arraycopy(from.sizes, 0, internal.sizes, internal.count, from.count);
+            System.arraycopy(from.keys, 0, internal.keys, internal.count, from.count - 1);
+            internal.count += from.count;
+        }
+
+        parent.sizes[index] += parent.sizes[index + 1];
+        int moved = parent.count - index - 2;
+        System.arraycopy(parent.children, index + 2, parent.children, index + 1, moved);
+        System.arraycopy(parent.sizes, index + 2, parent.sizes, index + 1, moved);
+        System.arraycopy(parent.keys, index + 1, parent.keys, index, moved);
+        parent.count--;
+        parent.children[parent.count] = null;
+        parent.keys[parent.count - 1] = null;
+    }
+
+
+    /**
+     * Returns the number of entries in the tree
+     *
+     * @return  the size of the tree
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in ascending order, walking the linked leaves
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  a list consisting of all keys in the tree in the ascending order
+     */
+    public List<K> inOrder()
+    {
+        return kSmallest(size);
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in descending order, walking the linked leaves
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  the list of all keys in the tree in descending order
+     */
+    public List<K> reverseOrder()
+    {
+        return kLargest(size);
+    }
+
+
+    /**
+     * Finds and returns the k smallest keys in ascending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of smallest keys to find
+     * @return   the list of k smallest keys in ascending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public List<K> kSmallest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size)
+            throw new IllegalArgumentException();
+
+        ArrayList<K> smallest = new ArrayList<>(k);
+        Node node = root;
+        while (node instanceof Internal)
+            node = ((Internal) node).children[0];
+        for (Leaf leaf = (Leaf) node; smallest.size() < k; leaf = leaf.next)
+        {
+            for (int i = 0; i < leaf.count && smallest.size() < k; i++)
+                smallest.add(key(leaf.keys[i]));
+        }
+        return smallest;
+    }
+
+
+    /**
+     * Finds and returns the k largest keys in descending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of largest keys to find
+     * @return   the list of k largest keys in descending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public List<K> kLargest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size)
+            throw new IllegalArgumentException();
+
+        ArrayList<K> largest = new ArrayList<>(k);
+        Node node = root;
+        while (node instanceof Internal)
+            node = ((Internal) node).children[node.count - 1];
+        for (Leaf leaf = (Leaf) node; largest.size() < k; leaf = leaf.prev)
+        {
+            for (int i = leaf.count - 1; i >= 0 && largest.size() < k; i--)
+                largest.add(key(leaf.keys[i]));
+        }
+        return largest;
+    }
+
+
+    /**
+     * Finds and returns the key with exactly rank smaller keys in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param rank  the zero-based rank of the key to find
+     * @return      the key of the given rank
+     * @throws      IllegalArgumentException if rank < 0 or rank >= the size of the tree
+     */
+    public K select(int rank) throws IllegalArgumentException
+    {
+        if (rank < 0 || rank >= size)
+            throw new IllegalArgumentException();
+
+        Node node = root;
+        while (node instanceof Internal)
+        {
+            Internal internal = (Internal) node;
+            int child = 0;
+            while (rank >= internal.sizes[child])
+                rank -= internal.sizes[child++];
+            node = internal.children[child];
+        }
+        return key(((Leaf) node).keys[rank]);
+    }
+
+
+    /**
+     * Returns the number of keys in the tree that are smaller than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the rank for
+     * @return     the number of keys smaller than key
+     * @throws     IllegalArgumentException if key is null
+     */
+    public int rank(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        int rank = 0;
+        Node node = root;
+        while (node instanceof Internal)
+        {
+            Internal internal = (Internal) node;
+            int child = upperBound(internal.keys, internal.count - 1, key);
+            for (int i = 0; i < child; i++)
+                rank += internal.sizes[i];
+            node = internal.children[child];
+        }
+        Leaf leaf = (Leaf) node;
+        return rank + lowerBound(leaf.keys, leaf.count, key);
+    }
+
+
+    /**
+     * Finds and returns the largest key in the tree that is smaller than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the predecessor for
+     * @return     the predecessor of key if the predecessor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K predecessor(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        Leaf leaf = leafFor(key);
+        int index = lowerBound(leaf.keys, leaf.count, key) - 1;
+        if (index >= 0)
+            return key(leaf.keys[index]);
+        return leaf.prev == null ? null : key(leaf.prev.keys[leaf.prev.count - 1]);
+    }
+
+
+    /**
+     * Finds and returns the smallest key in the tree that is larger than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the successor for
+     * @return     the successor of key if the successor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K successor(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        Leaf leaf = leafFor(key);
+        int index = upperBound(leaf.keys, leaf.count, key);
+        if (index < leaf.count)
+            return key(leaf.keys[index]);
+        return leaf.next == null ? null : key(leaf.next.keys[0]);
+    }
+
+
+    /**
+     * Descends to the leaf whose key range holds the given key
+     *
+     * @param key  the key to route
+     * @return     the leaf that holds key if it is in the tree
+     */
+    private Leaf leafFor(K key)
+    {
+        Node node = root;
+        while (node instanceof Internal)
+        {
+            Internal internal = (Internal) node;
+            node = internal.children[upperBound(internal.keys, internal.count - 1, key)];
+        }
+        return (Leaf) node;
+    }
+
+
+    /**
+     * Returns the index of the first of the first count keys that is >= key
+     */
+    private static <K extends Comparable<? super K>> int lowerBound(Object[] keys, int count, K key)
+    {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (key.compareTo(BPlusTree.<K>key(keys[mid])) > 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+
+    /**
+     * Returns the index of the first of the first count keys that is > key
+     */
+    private static <K extends Comparable<? super K>> int upperBound(Object[] keys, int count, K key)
+    {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (key.compareTo(BPlusTree.<K>key(keys[mid])) >= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <K> K key(Object key)
+    {
+        return (K) key;
+    }
+
+
+    private static int sizeOf(Node node)
+    {
+        if (node instanceof Leaf)
+            return node.count;
+
+        int size = 0;
+        Internal internal = (Internal) node;
+        for (int i = 0; i < internal.count; i++)
+            size += internal.sizes[i];
+        return size;
+    }
+
+
+    private static void clear(Object[] array, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+            array[i] = null;
+    }
+
+
+    /**
+     * A node of the tree; count is the number of entries of a leaf or children of an internal node
+     */
+    private abstract static class Node {
+        int count;
+    }
+
+    /**
+     * A leaf holding entries sorted by key, with one slot to spare before it is split
+     */
+    private static final class Leaf extends Node {
+        final Object[] keys = new Object[MAX_ENTRIES + 1];
+        final Object[] values = new Object[MAX_ENTRIES + 1];
+        Leaf prev;
+        Leaf next;
+    }
+
+    /**
+     * An internal node; every key in children[i + 1] is >= keys[i], and sizes[i] is the
+     * number of entries under children[i]
+     */
+    private static final class Internal extends Node {
+        final Object[] keys = new Object[MAX_ENTRIES];
+        final Node[] children = new Node[MAX_ENTRIES + 1];
+        final int[] sizes = new int[MAX_ENTRIES + 1];
+    }
+}
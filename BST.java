@@ -7,11 +7,60 @@
  * Colaborators/Resources: Dr Ding's javaFX code was edited and utilized for visualization of the BST :)
  */
 
-import java.util.LinkedList;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class BST<K extends Comparable<? super K>, V> {
+	/**
+	 * Whether trees count rotations and search paths and emit BSTOperationEvents.
+	 * Enabled with -Dbst.stats=true; when off, the JIT folds every check away.
+	 */
+	static final boolean STATS = Boolean.getBoolean("bst.stats");
+	/**
+	 * An upper bound on the number of levels of any AVL tree of int size, which is at most
+	 * 1.44 log2(n + 2), i.e. 45 levels. Fixed-size search paths in this package use it.
+	 */
+	static final int MAX_HEIGHT = 64;
+	private static final int PARALLEL_THRESHOLD = 1 << 12; // Subtrees at most this size are traversed on one thread
+	private static final int BULK_REBUILD_RATIO = 8; // putAll() rebuilds the tree for batches of at least 1/8 of its size
 	private BSTNode<K, V> root;
+	private BSTNode<K, V> removed; // The node unlinked by the last removeHelper() call
+	private int modCount; // The number of structural modifications and path-copying updates, checked by iterators
+	private boolean persistent; // Whether nodes may be shared with a snapshot and must be copied before a change
+	private int epoch; // The number of snapshots taken; nodes stamped with an older epoch may be shared with one
+	private boolean readOnly; // Whether this tree is a snapshot
+	private boolean compact; // Whether the nodes are compact BSTNodes rather than StandardBSTNodes
+
+	// Counters behind stats(), allocated and updated only when STATS is on. Concurrent readers
+	// of a ConcurrentBST search at the same time, so they are adders rather than plain fields.
+	private final LongAdder rotationsLL = STATS ? new LongAdder() : null;
+	private final LongAdder rotationsLR = STATS ? new LongAdder() : null;
+	private final LongAdder rotationsRR = STATS ? new LongAdder() : null;
+	private final LongAdder rotationsRL = STATS ? new LongAdder() : null;
+	private final LongAdder searches = STATS ? new LongAdder() : null;
+	private final LongAdder comparisons = STATS ? new LongAdder() : null;
+	private final LongAccumulator maxPathLength = STATS ? new LongAccumulator(Math::max, 0) : null;
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private final BSTNode<K, V>[] path = new BSTNode[MAX_HEIGHT]; // Search path of put()
 	
 	/**
      * This constructor initializes an empty BST.
@@ -22,6 +71,138 @@ public class BST<K extends Comparable<? super K>, V> {
         // DO NOT IMPLEMENT THIS CONSTRUCTOR!
     }
 
+    /**
+     * Initializes an empty BST of compact nodes
+     * 
+     * A compact node packs its height and size into one int and derives its balance factor
+     * from its children, so it takes 32 bytes instead of the 40 of a node of new BST()
+     * under the default HotSpot layout. In exchange, balance() reads the grandchildren's
+     * heights to balance a node, the tree holds at most 2^26 - 1 = 67,108,863 entries, and
+     * after a snapshot() every update copies the nodes it changes (see snapshot()).
+     * 
+     * @return  a new empty tree of compact nodes
+     */
+    public static <K extends Comparable<? super K>, V> BST<K, V> compact()
+    {
+        BST<K, V> tree = new BST<>();
+        tree.compact = true;
+        return tree;
+    }
+
+    /**
+     * Builds a balanced BST from keys that are already sorted in strictly ascending order
+     * 
+     * The middle key of every range becomes the root of its subtree, so the tree is laid out
+     * perfectly balanced with its heights and sizes set directly, without any rotations.
+     * 
+     * Time Complexity: O(n)
+     * 
+     * @param keys    the keys in strictly ascending order
+     * @param values  the values associated with keys, by index
+     * @return        a new tree holding every (key, value) pair
+     * @throws        IllegalArgumentException if an array, key or value is null, the arrays
+     *                differ in length, or the keys are not strictly ascending
+     */
+    public static <K extends Comparable<? super K>, V> BST<K, V> fromSorted(K[] keys, V[] values)
+            throws IllegalArgumentException
+    {
+        if(keys == null || values == null || keys.length != values.length)
+            throw new IllegalArgumentException();
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] == null || values[i] == null || (i > 0 && keys[i - 1].compareTo(keys[i]) >= 0))
+                throw new IllegalArgumentException();
+        }
+
+        BST<K, V> tree = new BST<>();
+        tree.root = tree.buildFromSorted(keys, values, 0, keys.length - 1);
+        return tree;
+    }
+    private BSTNode<K, V> buildFromSorted(K[] keys, V[] values, int lo, int hi)
+    {
+        if (lo > hi)
+            return null;
+
+        int mid = (lo + hi) >>> 1;
+        BSTNode<K, V> node = newNode(keys[mid], values[mid]);
+        node.setLeft(buildFromSorted(keys, values, lo, mid - 1));
+        node.setRight(buildFromSorted(keys, values, mid + 1, hi));
+        update(node);
+        return node;
+    }
+
+
+    /**
+     * Builds a balanced BST from the given number of entries, supplied in strictly ascending
+     * order of keys by an iterator
+     * 
+     * This method mirrors fromSorted() for sources that are not held in memory.
+     * The entries are consumed in order while the tree is laid out.
+     * 
+     * Time Complexity: O(n)
+     * 
+     * @param entries  the entries in strictly ascending order of keys
+     * @param size     the number of entries to take from the iterator
+     * @return         a new tree holding the first size entries
+     * @throws         IllegalArgumentException if entries is null, size < 0, a key or value is
+     *                 null, the keys are not strictly ascending, or the iterator runs out early
+     */
+    public static <K extends Comparable<? super K>, V> BST<K, V> fromSortedIterator(
+            Iterator<? extends Map.Entry<? extends K, ? extends V>> entries, int size)
+            throws IllegalArgumentException
+    {
+        if(entries == null || size < 0)
+            throw new IllegalArgumentException();
+
+        BST<K, V> tree = new BST<>();
+        tree.root = tree.buildFromSorted(new SortedSource<K, V>(entries), size);
+        return tree;
+    }
+    private BSTNode<K, V> buildFromSorted(SortedSource<K, V> source, int count)
+    {
+        if (count == 0)
+            return null;
+
+        int leftCount = (count - 1) / 2;
+        BSTNode<K, V> left = buildFromSorted(source, leftCount);
+        BSTNode<K, V> node = source.next();
+        node.setLeft(left);
+        node.setRight(buildFromSorted(source, count - 1 - leftCount));
+        update(node);
+        return node;
+    }
+
+
+    /**
+     * Turns the entries of an iterator into nodes, checking that keys are strictly ascending
+     */
+    private static final class SortedSource<K extends Comparable<? super K>, V>
+    {
+        private final Iterator<? extends Map.Entry<? extends K, ? extends V>> entries;
+        private K previous;
+
+        SortedSource(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries)
+        {
+            this.entries = entries;
+        }
+
+        BSTNode<K, V> next() throws IllegalArgumentException
+        {
+            if (!entries.hasNext())
+                throw new IllegalArgumentException();
+
+            Map.Entry<? extends K, ? extends V> entry = entries.next();
+            K key = entry.getKey();
+            V value = entry.getValue();
+            if (key == null || value == null || (previous != null && previous.compareTo(key) >= 0))
+                throw new IllegalArgumentException();
+
+            previous = key;
+            return new StandardBSTNode<K, V>(key, value);
+        }
+    }
+
+
     /**
      * Adds a new entry to the tree or updates the value of an existing key in the tree
      * 
@@ -52,28 +233,337 @@ public class BST<K extends Comparable<? super K>, V> {
      */
     public void put(K key, V value) throws IllegalArgumentException
     {
+        checkWritable();
         if(key == null || value == null)
             throw new IllegalArgumentException();
+        else if(!STATS)
+            putHelper(key, value);
         else
-            root = putHelper(root, key, value);
+        {
+            BSTOperationEvent event = new BSTOperationEvent();
+            event.begin();
+            long rotationsBefore = rotations();
+            int pathLength = putHelper(key, value);
+            recordSearch(pathLength);
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.operation = "put";
+                event.pathLength = pathLength;
+                event.rotations = (int) (rotations() - rotationsBefore);
+                event.height = height(root) + 1;
+                event.commit();
+            }
+        }
     }
-    private BSTNode<K, V> putHelper(BSTNode<K, V> node, K key, V value)
+    private int putHelper(K key, V value)
     {
-        if (node == null)
-            return new BSTNode<K, V>(key, value);
+        if (root == null)
+        {
+            root = newNode(key, value);
+            modCount++;
+            return 0;
+        }
 
-        if (key.compareTo(node.getKey()) == 0)
+        int depth = 0;
+        BSTNode<K, V> node = own(root);
+        boolean copied = node != root; // Whether the path was copied away from a snapshot
+        root = node;
+        while (true)
         {
-            node.setValue(value);
-            return node;
+            int cmp = key.compareTo(node.getKey());
+            if (cmp == 0)
+            {
+                node.setValue(value);
+                if (copied)
+                    modCount++; // Iterators and cursors would otherwise go on reading the old copies
+                int pathLength = depth + 1;
+                while (depth > 0)
+                    path[--depth] = null;
+                return pathLength;
+            }
+
+            path[depth++] = node;
+            BSTNode<K, V> next = cmp < 0 ? node.getLeft() : node.getRight();
+            if (next == null)
+            {
+                if (compact && root.getSize() == BSTNode.MAX_PACKED_SIZE)
+                {
+                    while (depth > 0)
+                        path[--depth] = null;
+                    throw new IllegalStateException("A compact tree holds at most " + BSTNode.MAX_PACKED_SIZE + " entries");
+                }
+                if (cmp < 0)
+                    node.setLeft(newNode(key, value));
+                else
+                    node.setRight(newNode(key, value));
+                modCount++;
+                break;
+            }
+            if (persistent)
+            {
+                // Copy the path as it is descended, so a snapshot never sees the change
+                BSTNode<K, V> owned = own(next);
+                copied |= owned != next;
+                next = owned;
+                if (cmp < 0)
+                    node.setLeft(next);
+                else
+                    node.setRight(next);
+            }
+            node = next;
+        }
+
+        // Go back up from the new leaf, relinking each balanced subtree into its parent
+        int pathLength = depth;
+        while (--depth > 0)
+        {
+            BSTNode<K, V> child = path[depth];
+            BSTNode<K, V> parent = path[depth - 1];
+            path[depth] = null;
+            BSTNode<K, V> balanced = balance(child);
+            if (parent.getLeft() == child)
+                parent.setLeft(balanced);
+            else
+                parent.setRight(balanced);
+        }
+        root = balance(path[0]);
+        path[0] = null;
+        return pathLength;
+    }
+
+
+    /**
+     * Adds or updates every entry of the given map
+     * 
+     * The batch is sorted once and merged into the tree as a whole instead of descending
+     * from the root for every entry. See putAll(K[], V[]) for how the merge is chosen.
+     * 
+     * @param entries  the entries to add or update
+     * @throws         IllegalArgumentException if entries, or any of its keys or values, is null
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) throws IllegalArgumentException
+    {
+        checkWritable();
+        if(entries == null)
+            throw new IllegalArgumentException();
+
+        K[] keys = newKeyArray(entries.size());
+        V[] values = newValueArray(entries.size());
+        int count = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet())
+        {
+            keys[count] = entry.getKey();
+            values[count] = entry.getValue();
+            count++;
+        }
+        boolean sorted = entries instanceof SortedMap && ((SortedMap<?, ?>) entries).comparator() == null;
+        putAllHelper(keys, values, sorted);
+    }
+
+
+    /**
+     * Adds or updates every (keys[i], values[i]) pair; for repeated keys the last pair wins
+     * 
+     * The batch is sorted and merged into the tree in one pass. When the batch is small
+     * relative to the tree, it is built into a balanced subtree and unioned with the tree
+     * by splitting and joining, which touches only O(m log(n / m + 1)) nodes. When it is at
+     * least 1 / BULK_REBUILD_RATIO of the tree, the keys of both are merged linearly and the
+     * whole tree is rebuilt balanced.
+     * 
+     * Time Complexity: O(m log m + min(m log(n / m + 1), n + m)) for a batch of m pairs
+     * 
+     * @param keys    the keys to add or update
+     * @param values  the values associated with keys, by index
+     * @throws        IllegalArgumentException if an array, key or value is null,
+     *                or the arrays differ in length
+     */
+    public void putAll(K[] keys, V[] values) throws IllegalArgumentException
+    {
+        checkWritable();
+        if(keys == null || values == null || keys.length != values.length)
+            throw new IllegalArgumentException();
+        else
+            putAllHelper(keys.clone(), values.clone(), false);
+    }
+    private void putAllHelper(K[] keys, V[] values, boolean sorted)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] == null || values[i] == null)
+                throw new IllegalArgumentException();
+        }
+
+        int count = keys.length;
+        if (!sorted)
+        {
+            sortByKey(keys, values, keys.clone(), values.clone(), 0, count);
+            count = removeDuplicates(keys, values);
         }
+        if (count == 0)
+            return;
 
-        if (key.compareTo(node.getKey()) < 0)
-            node.setLeft(putHelper(node.getLeft(), key, value));
+        int treeSize = size(root);
+        if (compact && (long) treeSize + count > BSTNode.MAX_PACKED_SIZE)
+            throw new IllegalStateException("A compact tree holds at most " + BSTNode.MAX_PACKED_SIZE + " entries");
+        if ((long) count * BULK_REBUILD_RATIO >= treeSize)
+            root = mergeAndRebuild(keys, values, count);
         else
-            node.setRight(putHelper(node.getRight(), key, value));
+            root = union(root, buildFromSorted(keys, values, 0, count - 1));
+        modCount++;
+    }
 
-        return balance(node);
+
+    /**
+     * Merges the entries of the tree with a sorted batch and builds a balanced tree of both
+     *
+     * @param keys    the batch keys in strictly ascending order
+     * @param values  the batch values, by index
+     * @param count   the number of batch entries
+     * @return        the root of the rebuilt tree
+     */
+    private BSTNode<K, V> mergeAndRebuild(K[] keys, V[] values, int count)
+    {
+        int treeSize = size(root);
+        K[] treeKeys = newKeyArray(treeSize);
+        V[] treeValues = newValueArray(treeSize);
+        fill(root, treeKeys, treeValues, 0);
+
+        K[] mergedKeys = newKeyArray(treeSize + count);
+        V[] mergedValues = newValueArray(treeSize + count);
+        int i = 0, j = 0, merged = 0;
+        while (i < treeSize || j < count)
+        {
+            int cmp = i == treeSize ? 1 : j == count ? -1 : treeKeys[i].compareTo(keys[j]);
+            if (cmp < 0)
+            {
+                mergedKeys[merged] = treeKeys[i];
+                mergedValues[merged++] = treeValues[i++];
+            }
+            else
+            {
+                if (cmp == 0)
+                    i++;
+                mergedKeys[merged] = keys[j];
+                mergedValues[merged++] = values[j++];
+            }
+        }
+        return buildFromSorted(mergedKeys, mergedValues, 0, merged - 1);
+    }
+
+
+    /**
+     * Copies the entries of a subtree into arrays in ascending order of keys
+     *
+     * @param node    the root of the subtree
+     * @param keys    receives the keys
+     * @param values  receives the values
+     * @param index   the index to write the first entry at
+     * @return        the index after the last entry written
+     */
+    private int fill(BSTNode<K, V> node, K[] keys, V[] values, int index)
+    {
+        if (node == null)
+            return index;
+
+        index = fill(node.getLeft(), keys, values, index);
+        keys[index] = node.getKey();
+        values[index++] = node.getValue();
+        return fill(node.getRight(), keys, values, index);
+    }
+
+
+    /**
+     * Unions two balanced subtrees; for keys in both, the node of the second one is kept
+     *
+     * @param node   the root of the first subtree
+     * @param batch  the root of the second subtree
+     * @return       the root of the union
+     */
+    private BSTNode<K, V> union(BSTNode<K, V> node, BSTNode<K, V> batch)
+    {
+        if (batch == null)
+            return node;
+        if (node == null)
+            return batch;
+
+        BSTNode<K, V> batchLeft = batch.getLeft();
+        BSTNode<K, V> batchRight = batch.getRight();
+        Split<K, V> parts = new Split<>();
+        split(node, batch.getKey(), parts);
+        BSTNode<K, V> right = parts.right;
+        BSTNode<K, V> left = union(parts.left, batchLeft);
+        return join(left, batch, union(right, batchRight));
+    }
+
+
+    /**
+     * Stably sorts the pairs in [lo, hi) of two parallel arrays by key with a merge sort
+     *
+     * @param keys       the keys to sort
+     * @param values     the values to keep in step with keys
+     * @param keyBuf     a copy of keys, used as scratch space
+     * @param valueBuf   a copy of values, used as scratch space
+     * @param lo         the first index to sort
+     * @param hi         one past the last index to sort
+     */
+    private static <K extends Comparable<? super K>, V> void sortByKey(K[] keys, V[] values,
+            K[] keyBuf, V[] valueBuf, int lo, int hi)
+    {
+        if (hi - lo < 2)
+            return;
+
+        int mid = (lo + hi) >>> 1;
+        sortByKey(keyBuf, valueBuf, keys, values, lo, mid);
+        sortByKey(keyBuf, valueBuf, keys, values, mid, hi);
+        for (int i = lo, j = mid, out = lo; out < hi; out++)
+        {
+            if (j == hi || (i < mid && keyBuf[i].compareTo(keyBuf[j]) <= 0))
+            {
+                keys[out] = keyBuf[i];
+                values[out] = valueBuf[i++];
+            }
+            else
+            {
+                keys[out] = keyBuf[j];
+                values[out] = valueBuf[j++];
+            }
+        }
+    }
+
+
+    /**
+     * Collapses runs of equal keys in sorted parallel arrays, keeping the last pair of each run
+     *
+     * @param keys    the sorted keys
+     * @param values  the values, by index
+     * @return        the number of distinct keys, now at the front of the arrays
+     */
+    private static <K extends Comparable<? super K>, V> int removeDuplicates(K[] keys, V[] values)
+    {
+        int count = 0;
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (count > 0 && keys[count - 1].compareTo(keys[i]) == 0)
+                count--;
+            keys[count] = keys[i];
+            values[count++] = values[i];
+        }
+        return count;
+    }
+
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private K[] newKeyArray(int length)
+    {
+        return (K[]) new Comparable[length];
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private V[] newValueArray(int length)
+    {
+        return (V[]) new Object[length];
     }
 
 
@@ -93,9 +583,10 @@ public class BST<K extends Comparable<? super K>, V> {
 
 
     /**
-     * Updates the height and balance factor of a node
+     * Updates the height, balance factor and size of a node from the cached values of its
+     * children
      *
-     * @param node  the node to update the height and balance factor for
+     * @param node  the node to update the height, balance factor and size for
      */
     private void update(BSTNode<K, V> node)
     {
@@ -103,22 +594,48 @@ public class BST<K extends Comparable<? super K>, V> {
         int rightHeight = height(node.getRight());
         node.setHeight(1 + Math.max(leftHeight, rightHeight));
         node.setBalanceFactor(leftHeight - rightHeight);
+        node.setSize(size(node.getLeft()) + 1 + size(node.getRight()));
+    }
+
+
+    /**
+     * Creates a node of the kind this tree is made of
+     *
+     * @param key    the key stored in the new node
+     * @param value  the value associated with the key
+     * @return       a new compact BSTNode or StandardBSTNode
+     */
+    private BSTNode<K, V> newNode(K key, V value)
+    {
+        if (compact)
+            return new BSTNode<K, V>(key, value);
 
-        node.setSize(size(node));
+        BSTNode<K, V> node = new StandardBSTNode<K, V>(key, value);
+        node.setEpoch(epoch);
+        return node;
     }
+
+
+    /**
+     * Returns the size of the subtree rooted at a node
+     *
+     * @param node  the node to return the size for
+     * @return      the cached size of node if it's valid, 0 if it's null
+     */
     int size(BSTNode<K, V> node)
     {
         if (node == null)
             return 0;
         else
-            return (size(node.getLeft()) + 1 + size(node.getRight()));
+            return node.getSize();
     }
 
 
     /**
      * Performs a right rotation on a node
      *
-     * @param node  the node to rotate
+     * @param node  the node to rotate, which like its left child must already be owned
+     *              by this tree
      * @return      the left child
      *              which is the new root of the subtree after rotation
      */
@@ -136,7 +653,8 @@ public class BST<K extends Comparable<? super K>, V> {
     /**
      * Performs a left rotation on a node
      *
-     * @param node  the node to rotate
+     * @param node  the node to rotate, which like its right child must already be owned
+     *              by this tree
      * @return      the right child
      *              which is the new root of the subtree after rotation
      */
@@ -154,32 +672,52 @@ public class BST<K extends Comparable<? super K>, V> {
     /**
      * Balances an imbalanced node by left and right rotations
      *
-     * @param node  the node to balance
+     * @param node  the node to balance, which must already be owned by this tree
      * @return      the new root of the subtree after balance
      */
     private BSTNode<K, V> balance(BSTNode<K, V> node)
     {
         update(node);
-        if (Math.abs(node.getBalanceFactor()) <= 1)
+        int balanceFactor = node.getBalanceFactor();
+        if (Math.abs(balanceFactor) <= 1)
             return node;
 
-        if (node.getBalanceFactor() > 1)
+        // Own each node a rotation moves once, before the rotations relink it
+        if (balanceFactor > 1)
         {
-            if (node.getLeft().getBalanceFactor() >= 0)
+            BSTNode<K, V> left = own(node.getLeft());
+            node.setLeft(left);
+            if (left.getBalanceFactor() >= 0)
+            {
+                if (STATS)
+                    rotationsLL.increment();
                 return rotateRight(node);
+            }
             else
             {
-                node.setLeft(rotateLeft(node.getLeft()));
+                if (STATS)
+                    rotationsLR.increment();
+                left.setRight(own(left.getRight()));
+                node.setLeft(rotateLeft(left));
                 return rotateRight(node);
             }
         }
         else
         {
-            if (node.getRight().getBalanceFactor() <= 0)
+            BSTNode<K, V> right = own(node.getRight());
+            node.setRight(right);
+            if (right.getBalanceFactor() <= 0)
+            {
+                if (STATS)
+                    rotationsRR.increment();
                 return rotateLeft(node);
+            }
             else
             {
-                node.setRight(rotateRight(node.getRight()));
+                if (STATS)
+                    rotationsRL.increment();
+                right.setLeft(own(right.getLeft()));
+                node.setRight(rotateRight(right));
                 return rotateLeft(node);
             }
         }
@@ -213,13 +751,18 @@ public class BST<K extends Comparable<? super K>, V> {
     }
     private BSTNode<K, V> getHelper(BSTNode<K, V> node, K key)
     {
-        if (key.compareTo(node.getKey()) == 0)
-            return node;
-
-        if (key.compareTo(node.getKey()) < 0)
-            return node.getLeft() == null ? null : getHelper(node.getLeft(), key);
-        else
-            return node.getRight() == null ? null : getHelper(node.getRight(), key);
+        int pathLength = 0;
+        while (node != null)
+        {
+            pathLength++;
+            int cmp = key.compareTo(node.getKey());
+            if (cmp == 0)
+                break;
+            node = cmp < 0 ? node.getLeft() : node.getRight();
+        }
+        if (STATS)
+            recordSearch(pathLength);
+        return node;
     }
 
 
@@ -227,21 +770,21 @@ public class BST<K extends Comparable<? super K>, V> {
      * Traverses the tree by an in-order traversal
      * Sorts data by key
      *
+     * The result is an array-backed list presized to the size of the tree.
+     *
      * @return  a list consisting of all keys in the tree in the ascending order
      */
     public List<K> inOrder()
     {
-        LinkedList<K> order = new LinkedList<K>();
-        inOrderHelper(root, order);
-        return order;
+        return inOrder(root);
     }
     public List<K> inOrder(BSTNode<K, V> node) //for subtrees
     {
-        LinkedList<K> order = new LinkedList<>();
+        ArrayList<K> order = new ArrayList<>(size(node));
         inOrderHelper(node, order);
         return order;
     }
-    private void inOrderHelper(BSTNode<K, V> node, LinkedList<K> order)
+    private void inOrderHelper(BSTNode<K, V> node, ArrayList<K> order)
     {
         if (node == null)
             return;
@@ -253,87 +796,674 @@ public class BST<K extends Comparable<? super K>, V> {
 
 
     /**
-     * Finds and returns all keys in the tree in descending order
-     * 
-     * Time Complexity: O(n)
+     * Passes every entry in the tree to the given action in ascending order of keys
      * 
-     * Note: You would NOT receive credit if you perform an in-order traversal of the tree and 
-     * then reverse the returned list, as this is unnecessary. Instead your method should 
-     * directly obtain the list of all keys in descending order. 
+     * Unlike inOrder(), nothing is allocated, which suits callers that only aggregate.
      * 
-     * Hint: Modify in-order traversal by changing the order in which the nodes are visited.
+     * Time Complexity: O(n)
      * 
-     * @return  the list of all keys in the tree in descending order
+     * @param action  the action to perform on each key and value
+     * @throws        IllegalArgumentException if action is null
      */
-    public List<K> reverseOrder()
+    public void forEachInOrder(BiConsumer<? super K, ? super V> action) throws IllegalArgumentException
     {
-        LinkedList<K> reverseOrder = new LinkedList<>();
-        reverseOrderHelper(root, reverseOrder);
-        return reverseOrder;
+        if(action == null)
+            throw new IllegalArgumentException();
+        else
+            forEachInOrderHelper(root, action);
     }
-    private void reverseOrderHelper(BSTNode<K, V> node, LinkedList<K> reverseOrder)
+    private void forEachInOrderHelper(BSTNode<K, V> node, BiConsumer<? super K, ? super V> action)
     {
         if (node == null)
             return;
 
-        reverseOrderHelper(node.getRight(), reverseOrder);
-        reverseOrder.add(node.getKey());
-        reverseOrderHelper(node.getLeft(), reverseOrder);
+        forEachInOrderHelper(node.getLeft(), action);
+        action.accept(node.getKey(), node.getValue());
+        forEachInOrderHelper(node.getRight(), action);
     }
 
 
     /**
-     * Finds and returns the k smallest keys in ascending order
-     * 
-     * Ex:
-     * For the following BST
-     * 
-     *                50
-     *              /    \
-     *            25      75
-     *           /  \     / \
-     *          12   37  70  80
-     *         /  \    \      \
-     *        10  15    40    85
-     *           /
-     *          13
-     *          
-     * kSmallest(0) should return the list []
-     * kSmallest(5) should return the list [10, 12, 13, 15, 25]
-     * kSmallest(3) should return the list [10, 12, 13]
-     * kSmallest(20) should cause java.lang.IllegalArgumentException to be thrown
-     * 
-     * Time Complexity: O(log n + k)
+     * Returns a spliterator over the entries of the tree in ascending order of keys
      * 
-     * Note: The required time complexity does NOT allow you to perform an in-order traversal
-     * on the entire tree and then return the k smallest keys. Instead you should only traverse the 
-     * branches of the tree necessary to get the data you need.
+     * The spliterator covers a range of ranks. It splits that range in half exactly, and it
+     * seeks to its first entry through the subtree sizes only when traversal begins, so every
+     * split reports an exact size (SIZED and SUBSIZED).
      * 
-     * @param k  the number of smallest keys to find
-     * @return   the list of k smallest keys in ascending order
-     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     * @return  a spliterator over all entries of the tree
      */
-    public List<K> kSmallest(int k) throws IllegalArgumentException //FIX THIS
+    public Spliterator<Map.Entry<K, V>> spliterator()
     {
-        if(k < 0 || k > root.getSize())
-            throw new IllegalArgumentException();
-        else
-        {
-            BSTNode<K, V> subtree = kSmallestHelper(root, k);
-            return inOrder(subtree).subList(0, k);
-        }
+        return new RankSpliterator(0, size(root));
     }
-    private BSTNode<K, V> kSmallestHelper(BSTNode<K, V> node, int k)
+
+
+    /**
+     * Returns a parallel stream over the entries of the tree, split by rank
+     * 
+     * @return  a parallel stream over all entries of the tree
+     */
+    public Stream<Map.Entry<K, V>> parallelStream()
     {
-        return node.getSize() == k ? node :
-                node.getLeft() == null ? node :
-                        node.getLeft().getSize() < k ? node : kSmallestHelper(node.getLeft(), k);
+        return StreamSupport.stream(spliterator(), true);
     }
 
 
     /**
-     * Finds and returns the predecessor of the given key, i.e. the largest key 
-     * in the tree that is smaller than the given key.
+     * Passes every entry in the tree to the given action, splitting the work at subtree
+     * boundaries across the common ForkJoinPool
+     * 
+     * The action may be called concurrently and in no particular order.
+     * 
+     * Time Complexity: O(n / p + log n) with p worker threads
+     * 
+     * @param action  the action to perform on each key and value
+     * @throws        IllegalArgumentException if action is null
+     */
+    public void parallelForEach(BiConsumer<? super K, ? super V> action) throws IllegalArgumentException
+    {
+        if(action == null)
+            throw new IllegalArgumentException();
+        else if(root != null)
+            ForkJoinPool.commonPool().invoke(new ForEachTask<>(root, action));
+    }
+
+
+    /**
+     * Transforms every entry in the tree and combines the results, splitting the work at
+     * subtree boundaries across the common ForkJoinPool
+     * 
+     * Results are combined in ascending order of keys, so the reducer must be associative
+     * but need not be commutative. Null results of the transformer are skipped.
+     * 
+     * Time Complexity: O(n / p + log n) with p worker threads
+     * 
+     * @param transformer  the function mapping each key and value to a result
+     * @param reducer      the associative function combining two results
+     * @return             the combined result, null if the tree is empty or every result was null
+     * @throws             IllegalArgumentException if transformer or reducer is null
+     */
+    public <U> U parallelReduce(BiFunction<? super K, ? super V, ? extends U> transformer,
+                                BinaryOperator<U> reducer) throws IllegalArgumentException
+    {
+        if(transformer == null || reducer == null)
+            throw new IllegalArgumentException();
+        else if(root == null)
+            return null;
+        else
+            return ForkJoinPool.commonPool().invoke(new ReduceTask<>(root, transformer, reducer));
+    }
+
+
+    /**
+     * Spliterator over the entries whose ranks lie in [from, to)
+     */
+    private final class RankSpliterator implements Spliterator<Map.Entry<K, V>>
+    {
+        private int from;
+        private final int to;
+        private ArrayDeque<BSTNode<K, V>> stack; // Created by the first traversal
+        private final int expectedModCount = modCount;
+
+        RankSpliterator(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Spliterator<Map.Entry<K, V>> trySplit()
+        {
+            if (stack != null || to - from < 2)
+                return null;
+
+            int mid = (from + to) >>> 1;
+            Spliterator<Map.Entry<K, V>> prefix = new RankSpliterator(from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Map.Entry<K, V>> action)
+        {
+            if (from >= to)
+                return false;
+            action.accept(advance());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Map.Entry<K, V>> action)
+        {
+            while (from < to)
+                action.accept(advance());
+        }
+
+        private Map.Entry<K, V> advance()
+        {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            if (stack == null)
+            {
+                // Seek to the entry of rank from, keeping the in-order path to it
+                stack = new ArrayDeque<>(height(root) + 2);
+                BSTNode<K, V> node = root;
+                int rank = from;
+                while (true)
+                {
+                    int leftSize = size(node.getLeft());
+                    if (rank < leftSize)
+                    {
+                        stack.push(node);
+                        node = node.getLeft();
+                    }
+                    else if (rank > leftSize)
+                    {
+                        rank -= leftSize + 1;
+                        node = node.getRight();
+                    }
+                    else
+                    {
+                        stack.push(node);
+                        break;
+                    }
+                }
+            }
+
+            BSTNode<K, V> node = stack.pop();
+            for (BSTNode<K, V> child = node.getRight(); child != null; child = child.getLeft())
+                stack.push(child);
+            from++;
+            return new AbstractMap.SimpleImmutableEntry<>(node.getKey(), node.getValue());
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        }
+    }
+
+
+    /**
+     * Fork/join task applying an action to every entry of a subtree
+     */
+    @SuppressWarnings("serial") // Inherited Serializable, never serialized
+    private static final class ForEachTask<K extends Comparable<? super K>, V> extends RecursiveAction
+    {
+        private final BSTNode<K, V> node;
+        private final BiConsumer<? super K, ? super V> action;
+
+        ForEachTask(BSTNode<K, V> node, BiConsumer<? super K, ? super V> action)
+        {
+            this.node = node;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (node.getSize() <= PARALLEL_THRESHOLD)
+            {
+                forEach(node);
+                return;
+            }
+
+            ForEachTask<K, V> left = new ForEachTask<>(node.getLeft(), action);
+            left.fork();
+            action.accept(node.getKey(), node.getValue());
+            new ForEachTask<>(node.getRight(), action).compute();
+            left.join();
+        }
+
+        private void forEach(BSTNode<K, V> node)
+        {
+            if (node == null)
+                return;
+
+            forEach(node.getLeft());
+            action.accept(node.getKey(), node.getValue());
+            forEach(node.getRight());
+        }
+    }
+
+
+    /**
+     * Fork/join task transforming every entry of a subtree and combining the results in order
+     */
+    @SuppressWarnings("serial") // Inherited Serializable, never serialized
+    private static final class ReduceTask<K extends Comparable<? super K>, V, U> extends RecursiveTask<U>
+    {
+        private final BSTNode<K, V> node;
+        private final BiFunction<? super K, ? super V, ? extends U> transformer;
+        private final BinaryOperator<U> reducer;
+
+        ReduceTask(BSTNode<K, V> node, BiFunction<? super K, ? super V, ? extends U> transformer,
+                   BinaryOperator<U> reducer)
+        {
+            this.node = node;
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected U compute()
+        {
+            if (node.getSize() <= PARALLEL_THRESHOLD)
+                return reduce(node);
+
+            ReduceTask<K, V, U> left = new ReduceTask<>(node.getLeft(), transformer, reducer);
+            left.fork();
+            U middle = transformer.apply(node.getKey(), node.getValue());
+            U right = new ReduceTask<>(node.getRight(), transformer, reducer).compute();
+            return combine(combine(left.join(), middle), right);
+        }
+
+        private U reduce(BSTNode<K, V> node)
+        {
+            if (node == null)
+                return null;
+
+            U left = reduce(node.getLeft());
+            U middle = transformer.apply(node.getKey(), node.getValue());
+            return combine(combine(left, middle), reduce(node.getRight()));
+        }
+
+        private U combine(U first, U second)
+        {
+            if (first == null)
+                return second;
+            if (second == null)
+                return first;
+            return reducer.apply(first, second);
+        }
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in descending order
+     * 
+     * Time Complexity: O(n)
+     * 
+     * Note: You would NOT receive credit if you perform an in-order traversal of the tree and 
+     * then reverse the returned list, as this is unnecessary. Instead your method should 
+     * directly obtain the list of all keys in descending order. 
+     * 
+     * Hint: Modify in-order traversal by changing the order in which the nodes are visited.
+     * 
+     * @return  the list of all keys in the tree in descending order
+     */
+    public List<K> reverseOrder()
+    {
+        ArrayList<K> reverseOrder = new ArrayList<>(size(root));
+        reverseOrderHelper(root, reverseOrder);
+        return reverseOrder;
+    }
+    private void reverseOrderHelper(BSTNode<K, V> node, ArrayList<K> reverseOrder)
+    {
+        if (node == null)
+            return;
+
+        reverseOrderHelper(node.getRight(), reverseOrder);
+        reverseOrder.add(node.getKey());
+        reverseOrderHelper(node.getLeft(), reverseOrder);
+    }
+
+
+    /**
+     * Returns a lazy iterator over the entries with lo <= key <= hi in ascending order
+     * 
+     * The iterator seeks to lo in O(log n) and then keeps only the path to the
+     * current entry on an explicit stack, so it uses O(log n) memory and stops
+     * as soon as a key passes hi.
+     * 
+     * Time Complexity: O(log n) to create, O(1) amortized per entry
+     * 
+     * @param lo  the smallest key of the range
+     * @param hi  the largest key of the range
+     * @return    an iterator over the entries of the range in ascending order
+     * @throws    IllegalArgumentException if lo or hi is null
+     */
+    public Iterator<Map.Entry<K, V>> range(K lo, K hi) throws IllegalArgumentException
+    {
+        if(lo == null || hi == null)
+            throw new IllegalArgumentException();
+        else
+            return new RangeIterator(lo, hi, false);
+    }
+
+
+    /**
+     * Returns a lazy iterator over the entries with lo <= key <= hi in descending order
+     * 
+     * This method mirrors range()
+     * 
+     * Time Complexity: O(log n) to create, O(1) amortized per entry
+     * 
+     * @param lo  the smallest key of the range
+     * @param hi  the largest key of the range
+     * @return    an iterator over the entries of the range in descending order
+     * @throws    IllegalArgumentException if lo or hi is null
+     */
+    public Iterator<Map.Entry<K, V>> descendingRange(K lo, K hi) throws IllegalArgumentException
+    {
+        if(lo == null || hi == null)
+            throw new IllegalArgumentException();
+        else
+            return new RangeIterator(lo, hi, true);
+    }
+
+
+    /**
+     * Returns a lazy iterator over the entries with key >= the given key in ascending order
+     * 
+     * Time Complexity: O(log n) to create, O(1) amortized per entry
+     * 
+     * @param key  the smallest key to return
+     * @return     an iterator over the entries from key to the end of the tree
+     * @throws     IllegalArgumentException if key is null
+     */
+    public Iterator<Map.Entry<K, V>> tailFrom(K key) throws IllegalArgumentException
+    {
+        if(key == null)
+            throw new IllegalArgumentException();
+        else
+            return new RangeIterator(key, null, false);
+    }
+
+
+    /**
+     * Returns a lazy iterator over the entries with key <= the given key in ascending order
+     * 
+     * Time Complexity: O(log n) to create, O(1) amortized per entry
+     * 
+     * @param key  the largest key to return
+     * @return     an iterator over the entries from the start of the tree to key
+     * @throws     IllegalArgumentException if key is null
+     */
+    public Iterator<Map.Entry<K, V>> headTo(K key) throws IllegalArgumentException
+    {
+        if(key == null)
+            throw new IllegalArgumentException();
+        else
+            return new RangeIterator(null, key, false);
+    }
+
+
+    /**
+     * Iterator over the entries between two optional bounds, in either direction
+     * 
+     * The stack holds the nodes on the path to the next entry whose subtree on the
+     * iteration side has not been visited yet. A null bound is unbounded.
+     */
+    private final class RangeIterator implements Iterator<Map.Entry<K, V>>
+    {
+        private final ArrayDeque<BSTNode<K, V>> stack = new ArrayDeque<>(height(root) + 2);
+        private final K lo;
+        private final K hi;
+        private final boolean descending;
+        private final int expectedModCount = modCount;
+
+        RangeIterator(K lo, K hi, boolean descending)
+        {
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+
+            BSTNode<K, V> node = root;
+            while (node != null)
+            {
+                if (descending ? hi != null && node.getKey().compareTo(hi) > 0
+                               : lo != null && node.getKey().compareTo(lo) < 0)
+                    node = descending ? node.getLeft() : node.getRight();
+                else
+                {
+                    stack.push(node);
+                    node = descending ? node.getRight() : node.getLeft();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (stack.isEmpty())
+                return false;
+
+            K key = stack.peek().getKey();
+            if (descending)
+                return lo == null || key.compareTo(lo) >= 0;
+            else
+                return hi == null || key.compareTo(hi) <= 0;
+        }
+
+        @Override
+        public Map.Entry<K, V> next()
+        {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            BSTNode<K, V> node = stack.pop();
+            BSTNode<K, V> child = descending ? node.getLeft() : node.getRight();
+            while (child != null)
+            {
+                stack.push(child);
+                child = descending ? child.getRight() : child.getLeft();
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(node.getKey(), node.getValue());
+        }
+    }
+
+
+    /**
+     * Finds and returns the k smallest keys in ascending order
+     * 
+     * Ex:
+     * For the following BST
+     * 
+     *                50
+     *              /    \
+     *            25      75
+     *           /  \     / \
+     *          12   37  70  80
+     *         /  \    \      \
+     *        10  15    40    85
+     *           /
+     *          13
+     *          
+     * kSmallest(0) should return the list []
+     * kSmallest(5) should return the list [10, 12, 13, 15, 25]
+     * kSmallest(3) should return the list [10, 12, 13]
+     * kSmallest(20) should cause java.lang.IllegalArgumentException to be thrown
+     * 
+     * Time Complexity: O(log n + k)
+     * 
+     * Note: The required time complexity does NOT allow you to perform an in-order traversal
+     * on the entire tree and then return the k smallest keys. Instead you should only traverse the 
+     * branches of the tree necessary to get the data you need.
+     * 
+     * @param k  the number of smallest keys to find
+     * @return   the list of k smallest keys in ascending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public List<K> kSmallest(int k) throws IllegalArgumentException
+    {
+        if(k < 0 || k > size(root))
+            throw new IllegalArgumentException();
+        else
+        {
+            ArrayList<K> smallest = new ArrayList<>(k);
+            kSmallestHelper(root, k, smallest);
+            return smallest;
+        }
+    }
+    private void kSmallestHelper(BSTNode<K, V> node, int k, ArrayList<K> smallest)
+    {
+        if (node == null || smallest.size() == k)
+            return;
+
+        kSmallestHelper(node.getLeft(), k, smallest);
+        if (smallest.size() < k)
+        {
+            smallest.add(node.getKey());
+            kSmallestHelper(node.getRight(), k, smallest);
+        }
+    }
+
+
+    /**
+     * Finds and returns the k largest keys in descending order
+     * 
+     * This method mirrors kSmallest()
+     * 
+     * Time Complexity: O(log n + k)
+     * 
+     * @param k  the number of largest keys to find
+     * @return   the list of k largest keys in descending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public List<K> kLargest(int k) throws IllegalArgumentException
+    {
+        if(k < 0 || k > size(root))
+            throw new IllegalArgumentException();
+        else
+        {
+            ArrayList<K> largest = new ArrayList<>(k);
+            kLargestHelper(root, k, largest);
+            return largest;
+        }
+    }
+    private void kLargestHelper(BSTNode<K, V> node, int k, ArrayList<K> largest)
+    {
+        if (node == null || largest.size() == k)
+            return;
+
+        kLargestHelper(node.getRight(), k, largest);
+        if (largest.size() < k)
+        {
+            largest.add(node.getKey());
+            kLargestHelper(node.getLeft(), k, largest);
+        }
+    }
+
+
+    /**
+     * Finds and returns the key of a given rank, i.e. the key with exactly
+     * rank smaller keys in the tree
+     * 
+     * Uses the size of the left subtree at each node to decide whether the key
+     * lies to the left, at the node, or to the right.
+     * 
+     * Ex:
+     * For the BST shown in kSmallest()
+     * 
+     * select(0) should return 10
+     * select(4) should return 25
+     * select(12) should cause java.lang.IllegalArgumentException to be thrown
+     * 
+     * Time Complexity: O(log n)
+     * 
+     * @param rank  the zero-based rank of the key to find
+     * @return      the key of the given rank
+     * @throws      IllegalArgumentException if rank < 0 or rank >= the size of the tree
+     */
+    public K select(int rank) throws IllegalArgumentException
+    {
+        if(rank < 0 || rank >= size(root))
+            throw new IllegalArgumentException();
+        else
+            return selectHelper(root, rank).getKey();
+    }
+    private BSTNode<K, V> selectHelper(BSTNode<K, V> node, int rank)
+    {
+        while (true)
+        {
+            int leftSize = size(node.getLeft());
+            if (rank < leftSize)
+                node = node.getLeft();
+            else if (rank > leftSize)
+            {
+                rank -= leftSize + 1;
+                node = node.getRight();
+            }
+            else
+                return node;
+        }
+    }
+
+
+    /**
+     * Returns the rank of the given key, i.e. the number of keys in the tree
+     * that are smaller than the given key.
+     * 
+     * Note: The given key may or may not be in the tree.
+     * 
+     * Time Complexity: O(log n)
+     * 
+     * @param key  the key to find the rank for
+     * @return     the number of keys smaller than key
+     * @throws     IllegalArgumentException if key is null
+     */
+    public int rank(K key) throws IllegalArgumentException
+    {
+        if(key == null)
+            throw new IllegalArgumentException();
+        else
+            return rankHelper(root, key, false);
+    }
+    private int rankHelper(BSTNode<K, V> node, K key, boolean inclusive)
+    {
+        int rank = 0;
+        while (node != null)
+        {
+            int cmp = key.compareTo(node.getKey());
+            if (cmp < 0 || (cmp == 0 && !inclusive))
+                node = node.getLeft();
+            else
+            {
+                rank += size(node.getLeft()) + 1;
+                if (cmp == 0)
+                    return rank;
+                node = node.getRight();
+            }
+        }
+        return rank;
+    }
+
+
+    /**
+     * Returns the number of keys k in the tree with lo <= k <= hi
+     * 
+     * Time Complexity: O(log n)
+     * 
+     * @param lo  the smallest key of the range
+     * @param hi  the largest key of the range
+     * @return    the number of keys in the range, 0 if lo > hi
+     * @throws    IllegalArgumentException if lo or hi is null
+     */
+    public int countInRange(K lo, K hi) throws IllegalArgumentException
+    {
+        if(lo == null || hi == null)
+            throw new IllegalArgumentException();
+        else if(lo.compareTo(hi) > 0)
+            return 0;
+        else
+            return rankHelper(root, hi, true) - rankHelper(root, lo, false);
+    }
+
+
+    /**
+     * Finds and returns the predecessor of the given key, i.e. the largest key 
+     * in the tree that is smaller than the given key.
      * 
      * Note: The given key may or may not be in the tree.
      * 
@@ -372,115 +1502,674 @@ public class BST<K extends Comparable<? super K>, V> {
      * @return     the predecessor of key if the predecessor exists, null otherwise
      * @throws     IllegalArgumentException if key is null
      */
-    public K predecessor(K key)
+    public K predecessor(K key)
+    {
+        if(key == null)
+            throw new IllegalArgumentException();
+        else
+        {
+            BSTNode<K, V> match = predecessorHelper(root, key);
+            if(match == null)
+                return null;
+            else
+                return match.getKey();
+        }
+    }
+    private BSTNode<K, V> predecessorHelper(BSTNode<K, V> node, K key)
+    {
+        BSTNode<K, V> match = null;
+        int pathLength = 0;
+        while (node != null)
+        {
+            pathLength++;
+            if (node.getKey().compareTo(key) < 0)
+            {
+                match = node;
+                node = node.getRight();
+            }
+            else
+                node = node.getLeft();
+        }
+        if (STATS)
+            recordSearch(pathLength);
+        return match;
+    }
+
+
+    /**
+     * Finds and returns the successor of the given key, i.e. the smallest key 
+     * in the tree that is larger than the given key.
+     * 
+     * This method mirrors predecessor()
+     * 
+     * Time Complexity: O(log n)
+     * 
+     * @param key  the key to find the successorreturn for
+     * @return     the successor of key if the successor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K successor(K key)
+    {
+        if(key == null)
+            throw new IllegalArgumentException();
+        else
+        {
+            BSTNode<K, V> match = successorHelper(root, key);
+            if(match == null)
+                return null;
+            else
+                return match.getKey();
+        }
+    }
+    private BSTNode<K, V> successorHelper(BSTNode<K, V> node, K key)
+    {
+        BSTNode<K, V> match = null;
+        int pathLength = 0;
+        while (node != null)
+        {
+            pathLength++;
+            if (node.getKey().compareTo(key) > 0)
+            {
+                match = node;
+                node = node.getLeft();
+            }
+            else
+                node = node.getRight();
+        }
+        if (STATS)
+            recordSearch(pathLength);
+        return match;
+    }
+
+
+    /**
+     * Finds the entry with the largest key <= the given key
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the floor for
+     * @return     the (key, value) entry of the floor of key if it exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public Map.Entry<K, V> floorEntry(K key) throws IllegalArgumentException
+    {
+        return neighbourEntry(key, true, true);
+    }
+
+
+    /**
+     * Finds the entry with the smallest key >= the given key
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the ceiling for
+     * @return     the (key, value) entry of the ceiling of key if it exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public Map.Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException
     {
-        if(key == null)
+        return neighbourEntry(key, false, true);
+    }
+
+
+    /**
+     * Finds the entry with the largest key < the given key, i.e. the entry of predecessor(key)
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the lower entry for
+     * @return     the (key, value) entry of the predecessor of key if it exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public Map.Entry<K, V> lowerEntry(K key) throws IllegalArgumentException
+    {
+        return neighbourEntry(key, true, false);
+    }
+
+
+    /**
+     * Finds the entry with the smallest key > the given key, i.e. the entry of successor(key)
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the higher entry for
+     * @return     the (key, value) entry of the successor of key if it exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public Map.Entry<K, V> higherEntry(K key) throws IllegalArgumentException
+    {
+        return neighbourEntry(key, false, false);
+    }
+    private Map.Entry<K, V> neighbourEntry(K key, boolean below, boolean inclusive)
+    {
+        if (key == null)
             throw new IllegalArgumentException();
-        else
+
+        BSTNode<K, V> node = root;
+        BSTNode<K, V> match = null;
+        int pathLength = 0;
+        while (node != null)
         {
-            BSTNode<K, V> match = predecessorHelper(root, key);
-            if(match == null)
-                return null;
+            pathLength++;
+            int cmp = key.compareTo(node.getKey());
+            if (cmp == 0 && inclusive)
+            {
+                match = node;
+                break;
+            }
+            if (below ? cmp > 0 : cmp < 0)
+            {
+                match = node;
+                node = below ? node.getRight() : node.getLeft();
+            }
             else
-                return match.getKey();
+                node = below ? node.getLeft() : node.getRight();
         }
+        if (STATS)
+            recordSearch(pathLength);
+        return match == null ? null : new AbstractMap.SimpleImmutableEntry<>(match.getKey(), match.getValue());
     }
-    private BSTNode<K, V> predecessorHelper(BSTNode<K, V> node, K key) //FIX THIS
+
+
+    /**
+     * Finds the floor entry of every key of a sorted batch of queries
+     *
+     * The queries are answered by one BSTCursor moving forward through the tree, so each
+     * query resumes from the floor of the previous one instead of from the root. Queries
+     * sharing a floor share its entry. Since the cursor only moves forward, no node is
+     * visited twice, and the cost is bounded by the n nodes of the tree as well.
+     *
+     * Time Complexity: O(m log(n / m + 2)) for m queries spread over the tree,
+     *                  O(m + min(n, m log n)) worst case
+     *
+     * @param sortedQueries  the keys to find the floors for, in ascending order
+     * @return               the floor entries, by index of their query, with null for a
+     *                       query that has no floor
+     * @throws               IllegalArgumentException if sortedQueries or any of its keys is
+     *                       null, or the keys are not in ascending order
+     */
+    public List<Map.Entry<K, V>> floorAll(K[] sortedQueries) throws IllegalArgumentException
     {
-        if(node.getKey().compareTo(key) < 0)
+        if (sortedQueries == null)
+            throw new IllegalArgumentException();
+        for (int i = 0; i < sortedQueries.length; i++)
         {
-            if(node.getRight() == null)
-                return node;
-            else if(node.getRight().getKey().compareTo(key) < 0)
-                return predecessorHelper(node.getRight(), key);
-            else if(node.getRight().getLeft() == null)
-                return node;
-            else if(node.getRight().getLeft().getKey().compareTo(key) < 0)
-                return predecessorHelper(node.getRight().getLeft(), key);
-            else
-                return node;
+            if (sortedQueries[i] == null || (i > 0 && sortedQueries[i - 1].compareTo(sortedQueries[i]) > 0))
+                throw new IllegalArgumentException();
         }
-        else
+
+        ArrayList<Map.Entry<K, V>> floors = new ArrayList<>(sortedQueries.length);
+        BSTCursor<K, V> cursor = cursor();
+        Map.Entry<K, V> floor = null;
+        for (K query : sortedQueries)
         {
-            if(node.getLeft() == null)
-                return null;
-            else
-                return predecessorHelper(node.getLeft(), key);
+            if (!cursor.seekFloor(query))
+                floor = null;
+            else if (floor == null || floor.getKey() != cursor.key())
+                floor = new AbstractMap.SimpleImmutableEntry<>(cursor.key(), cursor.value());
+            floors.add(floor);
         }
+        return floors;
     }
 
 
     /**
-     * Finds and returns the successor of the given key, i.e. the smallest key 
-     * in the tree that is larger than the given key.
+     * Removes the data whose key matches the given key and returns its associated value
+     * if the key is in the tree; returns null otherwise.
      * 
-     * This method mirrors predecessor()
+     * Traverse the tree to find the node holding the key. If it has at most one child,
+     * that child takes its place. Otherwise the smallest node of its right subtree is
+     * unlinked and takes its place. Then go back up the tree to the root, balancing every
+     * node on the path and updating its height and size.
      * 
      * Time Complexity: O(log n)
      * 
-     * @param key  the key to find the successorreturn for
-     * @return     the successor of key if the successor exists, null otherwise
+     * @param key  the key of the data to remove
+     * @return     the value associated with key if key is in the tree, null otherwise
      * @throws     IllegalArgumentException if key is null
      */
-    public K successor(K key)
+    public V remove(K key) throws IllegalArgumentException
     {
+        checkWritable();
         if(key == null)
             throw new IllegalArgumentException();
         else
         {
-            BSTNode<K, V> match = successorHelper(root, key);
+            root = removeHelper(root, key);
+            BSTNode<K, V> match = removed;
+            removed = null;
             if(match == null)
                 return null;
             else
-                return match.getKey();
+            {
+                modCount++;
+                return match.getValue();
+            }
         }
     }
-    private BSTNode<K, V> successorHelper(BSTNode<K, V> node, K key)
+    private BSTNode<K, V> removeHelper(BSTNode<K, V> node, K key)
     {
-        if(node.getKey().compareTo(key) > 0)
+        if (node == null)
+            return null;
+
+        node = own(node);
+        int cmp = key.compareTo(node.getKey());
+        if (cmp < 0)
+            node.setLeft(removeHelper(node.getLeft(), key));
+        else if (cmp > 0)
+            node.setRight(removeHelper(node.getRight(), key));
+        else
         {
-            if(node.getLeft() == null)
-                return node;
-            else if(node.getLeft().getKey().compareTo(key) > 0)
-                return successorHelper(node.getLeft(), key);
-            else if(node.getLeft().getRight() == null)
-                return node;
-            else if(node.getLeft().getRight().getKey().compareTo(key) > 0)
-                return successorHelper(node.getLeft().getRight(), key);
-            else
-                return node;
+            removed = node;
+            if (node.getLeft() == null)
+                return node.getRight();
+            if (node.getRight() == null)
+                return node.getLeft();
+
+            BSTNode<K, V> successor = own(min(node.getRight()));
+            successor.setRight(removeMin(node.getRight()));
+            successor.setLeft(node.getLeft());
+            node = successor;
+        }
+
+        return balance(node);
+    }
+
+
+    /**
+     * Removes the entry with the smallest key in the tree and returns it
+     *
+     * Time Complexity: O(log n)
+     *
+     * @return  the (key, value) entry with the smallest key, null if the tree is empty
+     */
+    public Map.Entry<K, V> pollFirst()
+    {
+        checkWritable();
+        if (root == null)
+            return null;
+
+        BSTNode<K, V> first = min(root);
+        root = removeMin(root);
+        modCount++;
+        return new AbstractMap.SimpleImmutableEntry<>(first.getKey(), first.getValue());
+    }
+
+
+    /**
+     * Removes the entry with the largest key in the tree and returns it
+     *
+     * Time Complexity: O(log n)
+     *
+     * @return  the (key, value) entry with the largest key, null if the tree is empty
+     */
+    public Map.Entry<K, V> pollLast()
+    {
+        checkWritable();
+        if (root == null)
+            return null;
+
+        BSTNode<K, V> last = max(root);
+        root = removeMax(root);
+        modCount++;
+        return new AbstractMap.SimpleImmutableEntry<>(last.getKey(), last.getValue());
+    }
+
+
+    /**
+     * Removes every key k with lo <= k <= hi and returns how many were removed
+     *
+     * The tree is split at lo and at hi, and the parts below lo and above hi are
+     * joined back together, so the removed keys are never visited one by one. An empty
+     * range leaves the tree untouched, so it does not invalidate iterators and cursors.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param lo  the smallest key of the range to remove
+     * @param hi  the largest key of the range to remove
+     * @return    the number of keys removed
+     * @throws    IllegalArgumentException if lo or hi is null, or lo > hi
+     */
+    public int removeRange(K lo, K hi) throws IllegalArgumentException
+    {
+        checkWritable();
+        if(lo == null || hi == null || lo.compareTo(hi) > 0)
+            throw new IllegalArgumentException();
+
+        int count = countInRange(lo, hi);
+        if (count == 0)
+            return 0; // Nothing to remove, so leave the tree and its iterators alone
+
+        Split<K, V> parts = new Split<>();
+        split(root, lo, parts);
+        BSTNode<K, V> below = parts.left;
+        split(parts.right, hi, parts);
+        root = join(below, parts.right);
+        modCount++;
+        return count;
+    }
+
+
+    /**
+     * Returns the node with the smallest key in a subtree
+     *
+     * @param node  the root of a non-empty subtree
+     * @return      the leftmost node of the subtree
+     */
+    private BSTNode<K, V> min(BSTNode<K, V> node)
+    {
+        while (node.getLeft() != null)
+            node = node.getLeft();
+        return node;
+    }
+
+
+    /**
+     * Returns the node with the largest key in a subtree
+     *
+     * @param node  the root of a non-empty subtree
+     * @return      the rightmost node of the subtree
+     */
+    private BSTNode<K, V> max(BSTNode<K, V> node)
+    {
+        while (node.getRight() != null)
+            node = node.getRight();
+        return node;
+    }
+
+
+    /**
+     * Unlinks the node with the smallest key from a subtree and balances the path to it
+     *
+     * @param node  the root of a non-empty subtree
+     * @return      the new root of the subtree after removal
+     */
+    private BSTNode<K, V> removeMin(BSTNode<K, V> node)
+    {
+        if (node.getLeft() == null)
+            return node.getRight();
+
+        node = own(node);
+        node.setLeft(removeMin(node.getLeft()));
+        return balance(node);
+    }
+
+
+    /**
+     * Unlinks the node with the largest key from a subtree and balances the path to it
+     *
+     * @param node  the root of a non-empty subtree
+     * @return      the new root of the subtree after removal
+     */
+    private BSTNode<K, V> removeMax(BSTNode<K, V> node)
+    {
+        if (node.getRight() == null)
+            return node.getLeft();
+
+        node = own(node);
+        node.setRight(removeMax(node.getRight()));
+        return balance(node);
+    }
+
+
+    /**
+     * Joins two balanced subtrees and a middle node into one balanced subtree
+     * 
+     * Every key of left must be smaller than the key of middle, and every key of
+     * right must be larger. The taller subtree is descended along its inner spine
+     * until the heights are within one, middle is linked in there, and the path
+     * back up is balanced.
+     *
+     * Time Complexity: O(|height(left) - height(right)| + 1)
+     *
+     * @param left    the subtree of smaller keys, may be null
+     * @param middle  the node to link between left and right
+     * @param right   the subtree of larger keys, may be null
+     * @return        the root of the joined subtree
+     */
+    private BSTNode<K, V> join(BSTNode<K, V> left, BSTNode<K, V> middle, BSTNode<K, V> right)
+    {
+        if (height(left) > height(right) + 1)
+        {
+            left = own(left);
+            left.setRight(join(left.getRight(), middle, right));
+            return balance(left);
+        }
+        if (height(right) > height(left) + 1)
+        {
+            right = own(right);
+            right.setLeft(join(left, middle, right.getLeft()));
+            return balance(right);
+        }
+
+        middle = own(middle);
+        middle.setLeft(left);
+        middle.setRight(right);
+        update(middle);
+        return middle;
+    }
+
+
+    /**
+     * Joins two balanced subtrees, where every key of left is smaller than every key of right
+     *
+     * @param left   the subtree of smaller keys, may be null
+     * @param right  the subtree of larger keys, may be null
+     * @return       the root of the joined subtree
+     */
+    private BSTNode<K, V> join(BSTNode<K, V> left, BSTNode<K, V> right)
+    {
+        if (left == null)
+            return right;
+        if (right == null)
+            return left;
+
+        BSTNode<K, V> middle = min(right);
+        return join(left, middle, removeMin(right));
+    }
+
+
+    /**
+     * Splits a subtree by a key into the balanced subtrees of smaller and larger keys
+     *
+     * The node holding the key itself, if any, is stored in parts.match and belongs
+     * to neither side.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param node   the root of the subtree to split
+     * @param key    the key to split by
+     * @param parts  receives the smaller part, the matching node and the larger part
+     */
+    private void split(BSTNode<K, V> node, K key, Split<K, V> parts)
+    {
+        if (node == null)
+        {
+            parts.left = null;
+            parts.match = null;
+            parts.right = null;
+            return;
+        }
+
+        int cmp = key.compareTo(node.getKey());
+        if (cmp == 0)
+        {
+            parts.left = node.getLeft();
+            parts.match = node;
+            parts.right = node.getRight();
+        }
+        else if (cmp < 0)
+        {
+            BSTNode<K, V> right = node.getRight();
+            split(node.getLeft(), key, parts);
+            parts.right = join(parts.right, node, right);
         }
         else
         {
-            if(node.getRight() == null)
-                return null;
-            else
-                return successorHelper(node.getRight(), key);
+            BSTNode<K, V> left = node.getLeft();
+            split(node.getRight(), key, parts);
+            parts.left = join(left, node, parts.left);
         }
     }
 
 
     /**
-     * For Extra Credit ONLY
+     * The result of split(): the subtrees of smaller and larger keys and the matching node
+     */
+    private static final class Split<K extends Comparable<? super K>, V>
+    {
+        BSTNode<K, V> left;
+        BSTNode<K, V> match;
+        BSTNode<K, V> right;
+    }
+
+
+    /**
+     * Returns a snapshot of the counters collected by this tree
      * 
-     * Removes the data whose key matches the given key and returns its associated value
-     * if the key is in the tree; returns null otherwise.
+     * Rotations are counted by type as balance() performs them, and searches by the
+     * number of nodes compared along their path in put(), get(), predecessor() and
+     * successor(). The counters stay at zero unless the JVM runs with -Dbst.stats=true.
+     * They are safe to update from concurrent searches, such as those of a ConcurrentBST,
+     * but stats() reads them one by one, so taken while searches run it may count a search
+     * in some counters and not yet in others.
      * 
-     * This is a hard method and I did not show you how to do this in the lectures.
-     * If you are interested and ambitious enough to attempt this, come to see me and I will
-     * explain to you how to remove a node from a BST and how to balance the tree after the removal. 
+     * @return  the counters, with the current height and size of the tree
+     */
+    public BSTStats stats()
+    {
+        if (!STATS)
+            return new BSTStats(0, 0, 0, 0, 0, 0, 0, height(root) + 1, size(root));
+        return new BSTStats(rotationsLL.sum(), rotationsLR.sum(), rotationsRR.sum(), rotationsRL.sum(),
+                searches.sum(), comparisons.sum(), (int) maxPathLength.get(), height(root) + 1, size(root));
+    }
+
+
+    /**
+     * Resets the counters returned by stats() to zero
+     */
+    public void resetStats()
+    {
+        if (!STATS)
+            return;
+        rotationsLL.reset();
+        rotationsLR.reset();
+        rotationsRR.reset();
+        rotationsRL.reset();
+        searches.reset();
+        comparisons.reset();
+        maxPathLength.reset();
+    }
+
+
+    /**
+     * Records one search that compared the key with pathLength nodes; only called when STATS is on
+     *
+     * @param pathLength  the number of nodes on the search path
+     */
+    void recordSearch(int pathLength)
+    {
+        searches.increment();
+        comparisons.add(pathLength);
+        maxPathLength.accumulate(pathLength);
+    }
+
+
+    /**
+     * Returns the number of rotations of every type so far; only called when STATS is on
+     *
+     * @return  the sum of the rotation counters
+     */
+    private long rotations()
+    {
+        return rotationsLL.sum() + rotationsLR.sum() + rotationsRR.sum() + rotationsRL.sum();
+    }
+
+
+    /**
+     * Returns an immutable snapshot of the tree
      * 
-     * Time Complexity: O(log n)
+     * The snapshot shares every node with the tree. From the first snapshot on, the tree
+     * is persistent: put(), remove() and the other updates copy each node on the path they
+     * change instead of changing it in place, so the snapshot keeps seeing the tree as it
+     * was. Readers of a snapshot therefore never block writers of the tree, and each later
+     * update costs O(log n) new nodes rather than a copy of the whole tree.
      * 
-     * @param key  the key of the data to remove
-     * @return     the value associated with key if key is in the tree, null otherwise
-     * @throws     IllegalArgumentException if key is null
+     * Only nodes that existed at the latest snapshot are copied. Every snapshot starts a new
+     * epoch, nodes are stamped with the epoch they were created or copied in, and a node of
+     * the current epoch is changed in place. So a tree that is snapshotted once and then
+     * updated many times copies only the paths it first touches. Compact nodes have no room
+     * for the stamp, so a compact tree copies every node it changes after a snapshot.
+     * A put() that only replaces a value but copies nodes to do so counts as a structural
+     * modification, so iterators and cursors fail fast instead of reading the old copies.
+     * 
+     * Time Complexity: O(1)
+     * 
+     * @return  a read-only tree with the current contents, whose updates throw
+     *          UnsupportedOperationException
+     */
+    public BST<K, V> snapshot()
+    {
+        persistent = true;
+        epoch++;
+        BST<K, V> snapshot = new BST<>();
+        snapshot.root = root;
+        snapshot.compact = compact;
+        snapshot.persistent = true;
+        snapshot.readOnly = true;
+        return snapshot;
+    }
+
+
+    /**
+     * Returns a node that this tree may change: the node itself, or in persistent mode
+     * a copy of it if it is older than the latest snapshot and may be shared with one
+     *
+     * @param node  the node about to be changed, may be null
+     * @return      the node to change and link in its place
+     */
+    private BSTNode<K, V> own(BSTNode<K, V> node)
+    {
+        if (node == null || !persistent || node.getEpoch() == epoch)
+            return node;
+
+        BSTNode<K, V> copy = node.copy();
+        copy.setEpoch(epoch);
+        return copy;
+    }
+
+
+    /**
+     * Rejects updates of a snapshot
+     *
+     * @throws  UnsupportedOperationException if this tree is a snapshot
+     */
+    private void checkWritable() throws UnsupportedOperationException
+    {
+        if (readOnly)
+            throw new UnsupportedOperationException();
+    }
+
+
+    /**
+     * Returns a cursor over the tree, positioned nowhere until it is moved
+     *
+     * @return  a new cursor over the tree
      */
-    public V remove(K key) {
-    	
-    	// Replace this line with your return statement
-    	return null;
-    	/* I am still working on this :) Decided to turn in the assignment early just in case. */
+    public BSTCursor<K, V> cursor()
+    {
+        return new BSTCursor<>(this);
+    }
+
+
+    /**
+     * Returns the number of structural modifications so far, checked by cursors
+     *
+     * @return  the modification count of the tree
+     */
+    int getModCount()
+    {
+        return modCount;
     }
 
 
@@ -1,9 +1,27 @@
 /**
  * Adapted from BSTAnimation.java in Listing 25.8
  * of Introduction to Java, 11th Edition, by Y. Daniel Liang
+ *
+ * The tree is only touched by a single background worker, so a large load or sort never
+ * stalls the FX thread. After every change the worker publishes an O(1) snapshot of the
+ * tree, and the view redraws the latest snapshot at most once per queued pulse, however
+ * many changes arrive in between.
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -11,12 +29,21 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 public class BSTAnimation extends Application {
 
-    BST tree;
+    BST tree; // Owned by the worker once the stage is shown
     BTView view;
+    Label lblStatus = new Label();
+    private volatile BST latest; // The latest snapshot published by the worker
+    private final AtomicBoolean redrawPending = new AtomicBoolean(); // Whether a redraw is queued on the FX thread
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BSTAnimation worker");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Override // Override the start method in the Application class
     public void start(Stage primaryStage) {
@@ -38,8 +65,10 @@ public class BSTAnimation extends Application {
         //tree.inOrder();
 
         BorderPane pane = new BorderPane();
-        view = new BTView(tree); // Create a View
+        latest = tree.snapshot();
+        view = new BTView(latest); // Create a View
         pane.setCenter(view);
+        pane.setTop(lblStatus);
 
         TextField tfKey = new TextField();
         tfKey.setPrefColumnCount(3);
@@ -47,27 +76,32 @@ public class BSTAnimation extends Application {
         TextField tfValue = new TextField();
         tfValue.setPrefColumnCount(3);
         tfValue.setAlignment(Pos.BASELINE_RIGHT);
+        TextField tfCount = new TextField("100000");
+        tfCount.setPrefColumnCount(6);
+        tfCount.setAlignment(Pos.BASELINE_RIGHT);
         Button btPut = new Button("Put");
         Button btGet = new Button("Get");
         Button btSort = new Button("Sort");
         Button btClear = new Button("Clear Text");
         Button btClearTree = new Button("Clear Tree");
+        Button btLoadRandom = new Button("Load N Random");
+        Button btLoadFile = new Button("Load File");
         HBox hBox = new HBox(5);
         hBox.getChildren().addAll(new Label("Enter Key: "),
               tfKey, new Label("Value: "),
-              tfValue, btPut, btGet, btSort, btClear, btClearTree);
+              tfValue, btPut, btGet, btSort, btClear, btClearTree,
+              new Label("N: "), tfCount, btLoadRandom, btLoadFile);
         hBox.setAlignment(Pos.CENTER);
         pane.setBottom(hBox);
 
         btPut.setOnAction(e -> {
             int key = Integer.parseInt(tfKey.getText());
             int value = Integer.parseInt(tfValue.getText());
-            tree.put(key, value);
-            view.displayTree();
+            update(() -> tree.put(key, value));
         });
 
         btSort.setOnAction(e -> {
-            System.out.println("In-Order: " + tree.inOrder());
+            worker.execute(() -> System.out.println("In-Order: " + tree.inOrder()));
         });
 
         btClear.setOnAction(e -> {
@@ -78,10 +112,26 @@ public class BSTAnimation extends Application {
         btClearTree.setOnAction(e -> {
             tfKey.clear();
             tfValue.clear();
-            tree = new BST();
-            view = new BTView(tree);
-            pane.setCenter(view);
-            view.displayTree();
+            update(() -> tree = new BST());
+        });
+
+        btLoadRandom.setOnAction(e -> {
+            int count = Integer.parseInt(tfCount.getText());
+            update(() -> {
+                Random random = new Random();
+                Map<Integer, Integer> entries = new HashMap<>();
+                while (entries.size() < count) {
+                    int key = random.nextInt();
+                    entries.put(key, key);
+                }
+                tree.putAll(entries);
+            });
+        });
+
+        btLoadFile.setOnAction(e -> {
+            File file = new FileChooser().showOpenDialog(primaryStage);
+            if (file != null)
+                update(() -> tree.putAll(readEntries(file)));
         });
 
         // Create a scene and place the pane in the stage
@@ -92,6 +142,60 @@ public class BSTAnimation extends Application {
         view.displayTree();
     }
 
+    @Override
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Applies a change to the tree on the worker, then publishes a snapshot and requests a
+     * redraw. A failed change is reported in the status line.
+     */
+    private void update(Runnable change) {
+        worker.execute(() -> {
+            String status;
+            try {
+                change.run();
+                status = tree.size(tree.getRoot()) + " keys";
+            } catch (RuntimeException e) {
+                status = "Failed: " + e;
+            }
+            latest = tree.snapshot();
+            String message = status;
+            Platform.runLater(() -> lblStatus.setText(message));
+            if (redrawPending.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    redrawPending.set(false);
+                    view.setTree(latest);
+                    view.displayTree();
+                });
+            }
+        });
+    }
+
+    /**
+     * Reads one entry per line, a key optionally followed by a value, separated by
+     * whitespace or a comma. A key without a value is stored as its own value.
+     */
+    private static Map<Integer, Integer> readEntries(File file) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<Integer, Integer> entries = new HashMap<>();
+        for (String line : lines) {
+            String[] fields = line.trim().split("[\\s,]+");
+            if (fields[0].isEmpty())
+                continue;
+            int key = Integer.parseInt(fields[0]);
+            entries.put(key, fields.length > 1 ? Integer.parseInt(fields[1]) : key);
+        }
+        return entries;
+    }
+
     /**
      * The main method is only needed for the IDE with limited
      * JavaFX support. Not needed for running from the command line.
@@ -0,0 +1,73 @@
+/**
+ * Encodes the keys or values of a BST for BSTSerializer
+ *
+ * A codec writes one value at a time to a stream and reads it back from a buffer, usually
+ * a memory-mapped file. Codecs of a fixed width let MappedIntBST find the i-th entry of a
+ * snapshot by arithmetic instead of a table of offsets.
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public interface BSTCodec<T> {
+    /**
+     * Writes ints as 4 big-endian bytes
+     */
+    BSTCodec<Integer> INT = new BSTCodec<Integer>() {
+        public int width() { return Integer.BYTES; }
+        public void write(DataOutput out, Integer value) throws IOException { out.writeInt(value); }
+        public Integer read(ByteBuffer in) { return in.getInt(); }
+    };
+
+    /**
+     * Writes longs as 8 big-endian bytes
+     */
+    BSTCodec<Long> LONG = new BSTCodec<Long>() {
+        public int width() { return Long.BYTES; }
+        public void write(DataOutput out, Long value) throws IOException { out.writeLong(value); }
+        public Long read(ByteBuffer in) { return in.getLong(); }
+    };
+
+    /**
+     * Writes strings as their length in bytes followed by their UTF-8 encoding
+     */
+    BSTCodec<String> STRING = new BSTCodec<String>() {
+        public int width() { return -1; }
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        public String read(ByteBuffer in) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Returns the number of bytes every encoded value takes
+     *
+     * @return  the width of an encoded value, or -1 if it varies
+     */
+    int width();
+
+    /**
+     * Encodes a value
+     *
+     * @param out    the stream to write to
+     * @param value  the value to encode, never null
+     * @throws       IOException if out fails
+     */
+    void write(DataOutput out, T value) throws IOException;
+
+    /**
+     * Decodes a value starting at the position of a buffer and advances the position past it
+     *
+     * @param in  the buffer to read from
+     * @return    the decoded value
+     */
+    T read(ByteBuffer in);
+}
@@ -0,0 +1,307 @@
+/**
+ * A position in a BST that moves between nearby keys without restarting from the root
+ *
+ * The cursor keeps the path from the root to its current entry. For every node on the path
+ * it also records which ancestors bound the node's subtree from below and from above. So
+ * next() and prev() jump straight to the bounding ancestor when there is no subtree to
+ * descend into, and seek() climbs only as far as the lowest ancestor whose subtree can
+ * hold the target before it descends again. A seek d keys away from the current entry
+ * therefore usually costs O(log d) comparisons instead of O(log n), and stepping through
+ * consecutive keys costs O(1) amortized.
+ *
+ * The O(log d) bound is not a worst case. A seek climbs as high as the lowest common
+ * ancestor of both keys, so from the largest key of the root's left subtree to its
+ * successor it climbs to the root, O(log n), although d = 1. Seeks that move in one
+ * direction never climb out of a node twice, so over such a sweep they cost O(log d)
+ * amortized.
+ *
+ * Cursors are obtained from BST.cursor(). Like the iterators of BST, a cursor fails fast
+ * with a ConcurrentModificationException once its tree is structurally modified. That
+ * includes a put() of an existing key after a snapshot(), which copies the nodes on the
+ * cursor's path; a put() that changes a value in place is seen by the cursor instead.
+ */
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+public class BSTCursor<K extends Comparable<? super K>, V> {
+    private final BST<K, V> tree;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final BSTNode<K, V>[] path = new BSTNode[BST.MAX_HEIGHT];
+    private final int[] lowerDepth = new int[BST.MAX_HEIGHT]; // Index in path of the ancestor bounding path[i] from below, -1 if none
+    private final int[] upperDepth = new int[BST.MAX_HEIGHT]; // Index in path of the ancestor bounding path[i] from above, -1 if none
+    private int depth; // The number of nodes on the path; the cursor is on path[depth - 1], or nowhere if 0
+    private final int expectedModCount;
+
+    /**
+     * Initializes a cursor over a tree, positioned nowhere.
+     *
+     * @param tree  the tree to move over
+     */
+    BSTCursor(BST<K, V> tree) {
+        this.tree = tree;
+        this.expectedModCount = tree.getModCount();
+    }
+
+    /**
+     * Moves to the entry with the smallest key >= the given key
+     *
+     * Time Complexity: O(log d) typically and amortized over seeks in one direction, where d
+     *                  is the distance from the current entry; O(log n) worst case and when
+     *                  the cursor is positioned nowhere
+     *
+     * @param key  the key to seek
+     * @return     true if there is such an entry, false if not, leaving the cursor nowhere
+     * @throws     IllegalArgumentException if key is null
+     * @throws     ConcurrentModificationException if the tree was structurally modified
+     */
+    public boolean seek(K key) throws IllegalArgumentException
+    {
+        return seek(key, true);
+    }
+
+
+    /**
+     * Moves to the entry with the largest key <= the given key
+     *
+     * Time Complexity: O(log d) typically and amortized over seeks in one direction, where d
+     *                  is the distance from the current entry; O(log n) worst case and when
+     *                  the cursor is positioned nowhere
+     *
+     * @param key  the key to seek
+     * @return     true if there is such an entry, false if not, leaving the cursor nowhere
+     * @throws     IllegalArgumentException if key is null
+     * @throws     ConcurrentModificationException if the tree was structurally modified
+     */
+    public boolean seekFloor(K key) throws IllegalArgumentException
+    {
+        return seek(key, false);
+    }
+    private boolean seek(K key, boolean ceiling)
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+        checkForComodification();
+
+        // Climb to the lowest node whose subtree may hold key; the root's holds every key
+        while (depth > 1 && !holds(depth - 1, key))
+            depth--;
+        if (depth == 0)
+        {
+            if (tree.getRoot() == null)
+                return false;
+            push(tree.getRoot(), -1, -1);
+        }
+
+        while (true)
+        {
+            int i = depth - 1;
+            int cmp = key.compareTo(path[i].getKey());
+            if (cmp == 0)
+                return true;
+
+            BSTNode<K, V> child = cmp < 0 ? path[i].getLeft() : path[i].getRight();
+            if (child != null)
+            {
+                if (cmp < 0)
+                    push(child, lowerDepth[i], i);
+                else
+                    push(child, i, upperDepth[i]);
+                continue;
+            }
+
+            // path[i] is the nearest key on one side; its bounding ancestor is the nearest on the other
+            if (ceiling == cmp < 0)
+                return true;
+            depth = (ceiling ? upperDepth[i] : lowerDepth[i]) + 1;
+            return depth > 0;
+        }
+    }
+
+
+    /**
+     * Moves to the entry with the smallest key in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @return  true if the tree is not empty, false if it is, leaving the cursor nowhere
+     * @throws  ConcurrentModificationException if the tree was structurally modified
+     */
+    public boolean first()
+    {
+        checkForComodification();
+        depth = 0;
+        if (tree.getRoot() == null)
+            return false;
+
+        push(tree.getRoot(), -1, -1);
+        descend(true);
+        return true;
+    }
+
+
+    /**
+     * Moves to the entry with the largest key in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @return  true if the tree is not empty, false if it is, leaving the cursor nowhere
+     * @throws  ConcurrentModificationException if the tree was structurally modified
+     */
+    public boolean last()
+    {
+        checkForComodification();
+        depth = 0;
+        if (tree.getRoot() == null)
+            return false;
+
+        push(tree.getRoot(), -1, -1);
+        descend(false);
+        return true;
+    }
+
+
+    /**
+     * Moves to the entry with the next larger key
+     *
+     * Time Complexity: O(1) amortized over a full traversal, O(log n) worst case
+     *
+     * @return  true if there is one, false if the current entry had the largest key,
+     *          leaving the cursor nowhere
+     * @throws  NoSuchElementException if the cursor is positioned nowhere
+     * @throws  ConcurrentModificationException if the tree was structurally modified
+     */
+    public boolean next()
+    {
+        return step(true);
+    }
+
+
+    /**
+     * Moves to the entry with the next smaller key
+     *
+     * Time Complexity: O(1) amortized over a full traversal, O(log n) worst case
+     *
+     * @return  true if there is one, false if the current entry had the smallest key,
+     *          leaving the cursor nowhere
+     * @throws  NoSuchElementException if the cursor is positioned nowhere
+     * @throws  ConcurrentModificationException if the tree was structurally modified
+     */
+    public boolean prev()
+    {
+        return step(false);
+    }
+    private boolean step(boolean forward)
+    {
+        checkForComodification();
+        if (depth == 0)
+            throw new NoSuchElementException();
+
+        int i = depth - 1;
+        BSTNode<K, V> child = forward ? path[i].getRight() : path[i].getLeft();
+        if (child == null)
+        {
+            // The nearest key on that side is the ancestor bounding the subtree
+            depth = (forward ? upperDepth[i] : lowerDepth[i]) + 1;
+            return depth > 0;
+        }
+
+        if (forward)
+            push(child, i, upperDepth[i]);
+        else
+            push(child, lowerDepth[i], i);
+        descend(forward);
+        return true;
+    }
+
+
+    /**
+     * Returns whether the cursor is on an entry
+     *
+     * @return  true if the cursor is on an entry, false if it is positioned nowhere
+     */
+    public boolean isPositioned()
+    {
+        return depth > 0;
+    }
+
+
+    /**
+     * Returns the key of the current entry
+     *
+     * @return  the key of the current entry
+     * @throws  NoSuchElementException if the cursor is positioned nowhere
+     * @throws  ConcurrentModificationException if the tree was structurally modified
+     */
+    public K key()
+    {
+        return current().getKey();
+    }
+
+
+    /**
+     * Returns the value of the current entry
+     *
+     * @return  the value of the current entry
+     * @throws  NoSuchElementException if the cursor is positioned nowhere
+     * @throws  ConcurrentModificationException if the tree was structurally modified
+     */
+    public V value()
+    {
+        return current().getValue();
+    }
+    private BSTNode<K, V> current()
+    {
+        checkForComodification();
+        if (depth == 0)
+            throw new NoSuchElementException();
+        return path[depth - 1];
+    }
+
+
+    /**
+     * Returns whether the subtree of path[i] spans the given key, i.e. whether key lies
+     * strictly between the keys of its bounding ancestors
+     */
+    private boolean holds(int i, K key)
+    {
+        return (lowerDepth[i] < 0 || key.compareTo(path[lowerDepth[i]].getKey()) > 0)
+            && (upperDepth[i] < 0 || key.compareTo(path[upperDepth[i]].getKey()) < 0);
+    }
+
+
+    /**
+     * Follows left children, or right children if not leftmost, to the end of the subtree
+     * of the current entry
+     */
+    private void descend(boolean leftmost)
+    {
+        while (true)
+        {
+            int i = depth - 1;
+            BSTNode<K, V> child = leftmost ? path[i].getLeft() : path[i].getRight();
+            if (child == null)
+                return;
+            if (leftmost)
+                push(child, lowerDepth[i], i);
+            else
+                push(child, i, upperDepth[i]);
+        }
+    }
+
+
+    private void push(BSTNode<K, V> node, int lower, int upper)
+    {
+        path[depth] = node;
+        lowerDepth[depth] = lower;
+        upperDepth[depth] = upper;
+        depth++;
+    }
+
+
+    private void checkForComodification()
+    {
+        if (tree.getModCount() != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+}
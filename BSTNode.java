@@ -2,7 +2,8 @@
 /**
  * Node class for implementing the BST class
  *
- * DO NOT MODIFY THIS FILE!!
+ * A BSTNode is the compact node of BST.compact(); new BST() uses its subclass
+ * StandardBSTNode.
  *
  */
 
@@ -11,20 +12,67 @@ public class BSTNode<K extends Comparable<? super K>, V> {
     private V value;
     private BSTNode<K, V> left;
     private BSTNode<K, V> right;
-    private int height;
-    private int balanceFactor;
-    private int size; // The number of nodes in the subtree rooted at the node
+    int meta; // The size and height packed as size << HEIGHT_BITS | height; StandardBSTNode keeps the size alone here
+
+    static final int HEIGHT_BITS = 6; // Enough for any height below BST.MAX_HEIGHT
+    private static final int HEIGHT_MASK = (1 << HEIGHT_BITS) - 1;
+    static final int MAX_PACKED_SIZE = (1 << (Integer.SIZE - HEIGHT_BITS)) - 1; // The largest size a compact node holds, 2^26 - 1
 
     /**
      * Constructs a BSTNode with the given key and value.
      *
+     * A BSTNode itself is the compact node of BST.compact(): it packs the height and a size
+     * of at most MAX_PACKED_SIZE into one int and derives its balance factor from the
+     * heights of its children, which makes it 8 bytes smaller than a StandardBSTNode.
+     *
      * @param key    the key stored in the new node
      * @param value  the value associated with the key
      */
     BSTNode(K key, V value) {
         this.key = key;
         this.value = value;
-        size = 1;
+        meta = 1 << HEIGHT_BITS;
+    }
+
+    /**
+     * Constructs a copy of the given node, with the same key, value, children, height and size.
+     *
+     * @param node  the node to copy
+     */
+    BSTNode(BSTNode<K, V> node) {
+        this.key = node.key;
+        this.value = node.value;
+        this.left = node.left;
+        this.right = node.right;
+        this.meta = node.meta;
+    }
+
+    /**
+     * Returns a copy of the node of the same class.
+     *
+     * @return a copy of the node
+     */
+    BSTNode<K, V> copy() {
+        return new BSTNode<K, V>(this);
+    }
+
+    /**
+     * Gets the snapshot epoch of the tree in which the node was created or copied.
+     *
+     * A compact node has no room to store it, so it reports -1, older than any epoch.
+     *
+     * @return the epoch of the node
+     */
+    int getEpoch() {
+        return -1;
+    }
+
+    /**
+     * Sets the snapshot epoch; a compact node ignores it.
+     *
+     * @param epoch the epoch of the tree
+     */
+    void setEpoch(int epoch) {
     }
 
     /**
@@ -96,16 +144,20 @@ public class BSTNode<K extends Comparable<? super K>, V> {
      * @return the height
      */
     public int getHeight() {
-        return height;
+        return meta & HEIGHT_MASK;
     }
 
     /**
      * Gets the balance factor.
      *
+     * A compact node derives it from the heights of its children.
+     *
      * @return the balance factor
      */
     public int getBalanceFactor() {
-        return balanceFactor;
+        int leftHeight = left == null ? -1 : left.getHeight();
+        int rightHeight = right == null ? -1 : right.getHeight();
+        return leftHeight - rightHeight;
     }
 
     /**
@@ -114,16 +166,17 @@ public class BSTNode<K extends Comparable<? super K>, V> {
      * @param height  the new height
      */
     public void setHeight(int height) {
-        this.height = height;
+        meta = meta & ~HEIGHT_MASK | height;
     }
 
     /**
      * Sets the balance factor.
      *
+     * A compact node derives its balance factor, so this has no effect on it.
+     *
      * @param balanceFactor the new balance factor
      */
     public void setBalanceFactor(int balanceFactor) {
-        this.balanceFactor = balanceFactor;
     }
     
     /**
@@ -132,7 +185,7 @@ public class BSTNode<K extends Comparable<? super K>, V> {
      * @return  the size of the subtree rooted at the node
      */
     public int getSize() {
-    	return size;
+    	return meta >>> HEIGHT_BITS;
     }
     
     /**
@@ -141,6 +194,6 @@ public class BSTNode<K extends Comparable<? super K>, V> {
      * @param size  the new size
      */
     public void setSize(int size) {
-    	this.size = size;
+    	meta = size << HEIGHT_BITS | meta & HEIGHT_MASK;
     }
 }
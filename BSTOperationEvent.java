@@ -0,0 +1,39 @@
+/**
+ * JFR event recording one BST update, emitted only when the JVM runs with -Dbst.stats=true
+ *
+ * The event is timed, so a recording can keep only the slow updates with a threshold,
+ * e.g. in a .jfc file:
+ *
+ *     <event name="bst.Operation">
+ *       <setting name="enabled">true</setting>
+ *       <setting name="threshold">1 ms</setting>
+ *     </event>
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("bst.Operation")
+@Label("BST Operation")
+@Category("BST")
+@Description("A BST update with its search path length and rebalancing work")
+@StackTrace(false)
+class BSTOperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Path Length")
+    @Description("The number of nodes compared on the way down")
+    int pathLength;
+
+    @Label("Rotations")
+    @Description("The number of rotations, a double rotation counting once")
+    int rotations;
+
+    @Label("Height")
+    @Description("The number of levels of the tree afterwards")
+    int height;
+}
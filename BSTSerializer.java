@@ -0,0 +1,165 @@
+/**
+ * Saves a BST to a compact binary file and loads it back in linear time
+ *
+ * A snapshot file holds, in order:
+ *
+ *     header   7 ints: MAGIC, VERSION, size, key width, value width, values offset, offsets offset
+ *     keys     every key in ascending order, encoded by the key codec
+ *     values   every value in the order of its key, encoded by the value codec
+ *     offsets  for values of variable width only, the int offset of each value from the
+ *              start of the values block
+ *
+ * Widths are those reported by the codecs, -1 for variable. The offsets offset is -1 when
+ * there is no offsets block. Loading maps the file and rebuilds the tree with
+ * BST.fromSorted(), so no key is compared more than once and no rotation runs. Snapshots
+ * whose keys were written with BSTCodec.INT can also be queried in place by MappedIntBST.
+ *
+ * A file is mapped as a single buffer, so snapshots are limited to 2 GB.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class BSTSerializer {
+    static final int MAGIC = 0x42535453; // "BSTS"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 7 * Integer.BYTES;
+    static final int SIZE = 8; // Byte offsets of the header fields after MAGIC and VERSION
+    static final int KEY_WIDTH = 12;
+    static final int VALUE_WIDTH = 16;
+    static final int VALUES_START = 20;
+    static final int OFFSETS_START = 24;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private BSTSerializer() {
+    }
+
+    /**
+     * Writes every entry of a tree to a file, replacing the file if it exists
+     *
+     * Time Complexity: O(n)
+     *
+     * @param tree        the tree to save
+     * @param file        the file to write
+     * @param keyCodec    the codec encoding the keys
+     * @param valueCodec  the codec encoding the values
+     * @throws            IllegalArgumentException if any argument is null
+     * @throws            IOException if the file cannot be written
+     */
+    public static <K extends Comparable<? super K>, V> void write(BST<K, V> tree, Path file,
+            BSTCodec<? super K> keyCodec, BSTCodec<? super V> valueCodec) throws IOException
+    {
+        if (tree == null || file == null || keyCodec == null || valueCodec == null)
+            throw new IllegalArgumentException();
+
+        int size = tree.size(tree.getRoot());
+        int[] offsets = valueCodec.width() < 0 ? new int[size] : null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES));
+            out.write(new byte[HEADER_BYTES]);
+
+            try {
+                tree.forEachInOrder((key, value) -> write(out, keyCodec, key));
+                int valuesStart = out.size();
+                int[] count = new int[1];
+                tree.forEachInOrder((key, value) -> {
+                    if (offsets != null)
+                        offsets[count[0]++] = out.size() - valuesStart;
+                    write(out, valueCodec, value);
+                });
+                int offsetsStart = -1;
+                if (offsets != null)
+                {
+                    offsetsStart = out.size();
+                    for (int offset : offsets)
+                        out.writeInt(offset);
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(keyCodec.width())
+                        .putInt(valueCodec.width()).putInt(valuesStart).putInt(offsetsStart).flip();
+                while (header.hasRemaining())
+                    channel.write(header, header.position());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+    private static <T> void write(DataOutputStream out, BSTCodec<? super T> codec, T value)
+    {
+        try {
+            codec.write(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Loads a tree from a file written by write(), building it balanced in linear time
+     *
+     * Time Complexity: O(n)
+     *
+     * @param file        the file to read
+     * @param keyCodec    the codec the keys were written with
+     * @param valueCodec  the codec the values were written with
+     * @return            a new tree holding every entry of the file
+     * @throws            IllegalArgumentException if any argument is null
+     * @throws            IOException if the file cannot be read or is not a snapshot
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <K extends Comparable<? super K>, V> BST<K, V> read(Path file,
+            BSTCodec<? extends K> keyCodec, BSTCodec<? extends V> valueCodec) throws IOException
+    {
+        if (file == null || keyCodec == null || valueCodec == null)
+            throw new IllegalArgumentException();
+
+        MappedByteBuffer buffer = map(file);
+        int size = buffer.getInt(SIZE);
+        K[] keys = (K[]) new Comparable[size];
+        V[] values = (V[]) new Object[size];
+        try {
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < size; i++)
+                keys[i] = keyCodec.read(buffer);
+            buffer.position(buffer.getInt(VALUES_START));
+            for (int i = 0; i < size; i++)
+                values[i] = valueCodec.read(buffer);
+            return BST.fromSorted(keys, values);
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is corrupt or was written with other codecs", e);
+        }
+    }
+
+
+    /**
+     * Maps a snapshot file read-only and checks its header
+     *
+     * @param file  the file to map
+     * @return      a buffer over the whole file
+     * @throws      IOException if the file cannot be mapped or is not a snapshot
+     */
+    static MappedByteBuffer map(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException(file + " is larger than 2 GB");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (length < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException(file + " is not a BST snapshot");
+            return buffer;
+        }
+    }
+}
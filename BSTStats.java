@@ -0,0 +1,129 @@
+/**
+ * An immutable snapshot of the counters a BST collects when run with -Dbst.stats=true
+ *
+ * Rotations are split by the shape that caused them: LL and RR imbalances are fixed by a
+ * single right or left rotation, LR and RL imbalances by a double rotation.
+ */
+
+public class BSTStats {
+    private final long rotationsLL;
+    private final long rotationsLR;
+    private final long rotationsRR;
+    private final long rotationsRL;
+    private final long searches;
+    private final long comparisons;
+    private final int maxPathLength;
+    private final int height;
+    private final int size;
+
+    BSTStats(long rotationsLL, long rotationsLR, long rotationsRR, long rotationsRL,
+             long searches, long comparisons, int maxPathLength, int height, int size) {
+        this.rotationsLL = rotationsLL;
+        this.rotationsLR = rotationsLR;
+        this.rotationsRR = rotationsRR;
+        this.rotationsRL = rotationsRL;
+        this.searches = searches;
+        this.comparisons = comparisons;
+        this.maxPathLength = maxPathLength;
+        this.height = height;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of single right rotations fixing a left-left imbalance.
+     *
+     * @return the LL rotation count
+     */
+    public long getRotationsLL() {
+        return rotationsLL;
+    }
+
+    /**
+     * Gets the number of double rotations fixing a left-right imbalance.
+     *
+     * @return the LR rotation count
+     */
+    public long getRotationsLR() {
+        return rotationsLR;
+    }
+
+    /**
+     * Gets the number of single left rotations fixing a right-right imbalance.
+     *
+     * @return the RR rotation count
+     */
+    public long getRotationsRR() {
+        return rotationsRR;
+    }
+
+    /**
+     * Gets the number of double rotations fixing a right-left imbalance.
+     *
+     * @return the RL rotation count
+     */
+    public long getRotationsRL() {
+        return rotationsRL;
+    }
+
+    /**
+     * Gets the number of searches made by put(), get(), predecessor() and successor().
+     *
+     * @return the search count
+     */
+    public long getSearches() {
+        return searches;
+    }
+
+    /**
+     * Gets the number of key comparisons made by those searches, one per node on their paths.
+     *
+     * @return the comparison count
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * Gets the average number of nodes on a search path.
+     *
+     * @return the average path length, 0 if there were no searches
+     */
+    public double getAveragePathLength() {
+        return searches == 0 ? 0 : (double) comparisons / searches;
+    }
+
+    /**
+     * Gets the largest number of nodes on a search path.
+     *
+     * @return the maximum path length
+     */
+    public int getMaxPathLength() {
+        return maxPathLength;
+    }
+
+    /**
+     * Gets the number of levels of the tree when the snapshot was taken.
+     *
+     * @return the height of the tree counted in levels, 0 if it was empty
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of entries of the tree when the snapshot was taken.
+     *
+     * @return the size of the tree
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BSTStats[rotations LL=%d LR=%d RR=%d RL=%d, searches=%d, comparisons=%d, "
+                + "avgPath=%.2f, maxPath=%d, height=%d, size=%d]",
+                rotationsLL, rotationsLR, rotationsRR, rotationsRL, searches, comparisons,
+                getAveragePathLength(), maxPathLength, height, size);
+    }
+}
@@ -1,22 +1,80 @@
 /**
  * Adapted from BSTAnimation.java in Listing 25.9
  * of Introduction to Java, 11th Edition, by Y. Daniel Liang
+ *
+ * TreeLayout places nodes by in-order rank, so no two nodes overlap at any depth, and
+ * only the part of the tree inside the pane is drawn. A subtree too narrow to show its nodes apart
+ * is collapsed into one grey marker labelled with its size. The shapes of every drawn node
+ * are kept between redraws with the placement they were drawn at, so a redraw allocates
+ * shapes only for nodes that were not drawn before, and touches only the shapes of nodes
+ * whose rank, depth, parent or collapsed state changed. An insert thus leaves alone the
+ * nodes ranked before it, and a value update leaves every node alone. Zooming and panning
+ * move every node. Scroll to zoom and drag to pan.
  */
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 
 public class BTView extends Pane {
     private BST tree = new BST();
     private double radius = 15; // Tree node radius
     private double vGap = 50; // Gap between two levels in a tree
+    private double zoom = 1; // Width of the laid out tree relative to the width of the pane
+    private double offsetX = 0; // Pan offset of the laid out tree
+    private double offsetY = 0;
+    private double dragX, dragY; // Mouse position at the last drag event
+    private double unit; // Horizontal distance between nodes of consecutive ranks
+    private final Group edges = new Group(); // Lines, drawn beneath the nodes
+    private final Group nodes = new Group(); // Circles and their labels
+    private Map<BSTNode, Shapes> shapes = new IdentityHashMap<>(); // Shapes of the nodes drawn last
 
     BTView(BST tree) {
       this.tree = tree;
+      getChildren().addAll(edges, nodes);
       //setStatus("Tree is empty");
+
+      Rectangle clip = new Rectangle();
+      clip.widthProperty().bind(widthProperty());
+      clip.heightProperty().bind(heightProperty());
+      setClip(clip);
+      widthProperty().addListener(o -> displayTree());
+      heightProperty().addListener(o -> displayTree());
+
+      setOnScroll(e -> {
+        double newZoom = Math.max(1, e.getDeltaY() > 0 ? zoom * 1.25 : zoom / 1.25);
+        offsetX = e.getX() - (e.getX() - offsetX) * newZoom / zoom; // Keep the point under the mouse
+        zoom = newZoom;
+        displayTree();
+      });
+      setOnMousePressed(e -> {
+        dragX = e.getX();
+        dragY = e.getY();
+      });
+      setOnMouseDragged(e -> {
+        offsetX += e.getX() - dragX;
+        offsetY += e.getY() - dragY;
+        dragX = e.getX();
+        dragY = e.getY();
+        displayTree();
+      });
+    }
+
+    /** Display another tree, such as a newer snapshot, from the next displayTree() on */
+    public void setTree(BST tree) {
+      this.tree = tree;
     }
 
     public void setStatus(String msg) {
@@ -24,36 +82,102 @@ public class BTView extends Pane {
     }
 
     public void displayTree() {
-      this.getChildren().clear(); // Clear the pane
+      getChildren().retainAll(edges, nodes); // Clear any status message
+      Map<BSTNode, Shapes> drawn = new IdentityHashMap<>();
       if (tree.getRoot() != null) {
-        // Display tree recursively
-        displayTree(tree.getRoot(), getWidth() / 2, vGap,
-          getWidth() / 4);
+        unit = getWidth() * zoom / tree.getRoot().getSize();
+        TreeLayout.layout(tree.getRoot(), (node, rank, depth, parentRank) ->
+            displayNode(node, rank, depth, parentRank, drawn));
+      }
+
+      // Unlink the shapes of the nodes that are no longer drawn
+      if (!shapes.isEmpty()) {
+        Set<Node> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Shapes s : shapes.values())
+          stale.addAll(s.all());
+        edges.getChildren().removeAll(stale);
+        nodes.getChildren().removeAll(stale);
+      }
+      shapes = drawn;
+    }
+
+    /** Display a node placed by TreeLayout, and return whether to display its subtrees */
+    private boolean displayNode(BSTNode root, int rank, int depth, int parentRank,
+        Map<BSTNode, Shapes> drawn) {
+      BSTNode left = root.getLeft();
+      int lo = rank - (left == null ? 0 : left.getSize());
+      double y = yOf(depth);
+      if (xOf(lo + root.getSize() - 1) < -radius || xOf(lo) > getWidth() + radius
+          || y > getHeight() + radius)
+        return false; // The whole subtree is outside the pane
+
+      // Reuse the shapes of the node if it was drawn last time
+      Shapes s = shapes.remove(root);
+      if (s == null) {
+        s = new Shapes();
+        edges.getChildren().add(s.edge);
+        nodes.getChildren().addAll(s.circle, s.label);
       }
+      drawn.put(root, s);
+
+      boolean collapsed = root.getSize() > 1 && root.getSize() * unit < 2 * radius;
+      s.place(xOf(rank), y, parentRank >= 0 ? xOf(parentRank) : Double.NaN, yOf(depth - 1),
+          collapsed ? "+" + root.getSize() : root.getKey() + "", collapsed);
+      return !collapsed;
+    }
+
+    /** Return the x-coordinate of the node of the given rank */
+    private double xOf(int rank) {
+      return offsetX + (rank + 0.5) * unit;
     }
 
-    /** Display a subtree rooted at position (x, y) */
-    private void displayTree(BSTNode root,
-        double x, double y, double hGap) {
-      if (root.getLeft() != null) {
-        // Draw a line to the left node
-        getChildren().add(new Line(x - hGap, y + vGap, x, y));
-        // Draw the left subtree recursively
-        displayTree(root.getLeft(), x - hGap, y + vGap, hGap / 2);
+    /** Return the y-coordinate of the nodes at the given depth */
+    private double yOf(int depth) {
+      return offsetY + vGap * (depth + 1);
+    }
+
+    /** The shapes drawing one node and the edge to its parent */
+    private class Shapes {
+      final Line edge = new Line();
+      final Circle circle = new Circle(radius, Color.WHITE);
+      final Text label = new Text();
+      private double x = Double.NaN, y, parentX, parentY; // Where the shapes were placed last
+      private String text;
+      private boolean collapsed;
+
+      Shapes() {
+        circle.setStroke(Color.BLACK);
       }
 
-      if (root.getRight() != null) {
-        // Draw a line to the right node
-        getChildren().add(new Line(x + hGap, y + vGap, x, y));
-        // Draw the right subtree recursively
-        displayTree(root.getRight(), x + hGap, y + vGap, hGap / 2);
+      /** Place the shapes, leaving them untouched if nothing changed since the last time */
+      void place(double x, double y, double parentX, double parentY, String text, boolean collapsed) {
+        if (x == this.x && y == this.y && Double.compare(parentX, this.parentX) == 0
+            && parentY == this.parentY && text.equals(this.text) && collapsed == this.collapsed)
+          return;
+        this.x = x;
+        this.y = y;
+        this.parentX = parentX;
+        this.parentY = parentY;
+        this.text = text;
+        this.collapsed = collapsed;
+
+        edge.setVisible(!Double.isNaN(parentX));
+        if (!Double.isNaN(parentX)) {
+          edge.setStartX(parentX);
+          edge.setStartY(parentY);
+        }
+        edge.setEndX(x);
+        edge.setEndY(y);
+        circle.setCenterX(x);
+        circle.setCenterY(y);
+        circle.setFill(collapsed ? Color.LIGHTGRAY : Color.WHITE);
+        label.setX(x - 4);
+        label.setY(y + 4);
+        label.setText(text);
       }
 
-      // Display a node
-      Circle circle = new Circle(x, y, radius);
-      circle.setFill(Color.WHITE);
-      circle.setStroke(Color.BLACK);
-      getChildren().addAll(circle,
-        new Text(x - 4, y + 4, root.getKey() + ""));
+      List<Node> all() {
+        return Arrays.asList(edge, circle, label);
+      }
     }
 }
\ No newline at end of file
@@ -0,0 +1,423 @@
+/**
+ * A thread-safe BST whose point lookups take no lock unless a writer interferes
+ *
+ * Writers take the write lock of a StampedLock and mutate an ordinary BST, rebalancing it
+ * in place. get(), containsKey(), predecessor() and successor() first search the tree
+ * optimistically without any lock and then validate the stamp: if no writer ran meanwhile,
+ * the answer is returned, and otherwise the search is repeated under the read lock. So a
+ * lookup is lock-free only while no writer interferes: one that fails validation waits for
+ * the writer to finish, and then holds off the next writer until it is done. A search
+ * that races a writer may see a torn tree, so it is bounded by BST.MAX_HEIGHT steps and any
+ * exception it hits is treated as a failed validation. Every operation therefore takes
+ * effect at a single point while no writer holds the lock, which makes them linearizable.
+ *
+ * Bulk reads such as inOrder() and kSmallest() run under the read lock. Long scans that
+ * should not hold it can run on a snapshot() instead.
+ */
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+public class ConcurrentBST<K extends Comparable<? super K>, V> {
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int HIGHER = 2;
+
+    private final BST<K, V> tree;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Initializes an empty tree.
+     */
+    public ConcurrentBST() {
+        this(new BST<K, V>());
+    }
+
+    /**
+     * Initializes a tree that takes over the given BST, which no one else may use afterwards.
+     *
+     * @param tree  the tree holding the initial contents
+     */
+    ConcurrentBST(BST<K, V> tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Adds a new entry to the tree or updates the value of an existing key in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key    the key of the entry to add or update
+     * @param value  the value associated with key
+     * @throws       IllegalArgumentException if key or value is null
+     */
+    public void put(K key, V value) throws IllegalArgumentException
+    {
+        long stamp = lock.writeLock();
+        try {
+            tree.put(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Adds or updates every entry of the given map under a single acquisition of the write lock
+     *
+     * @param entries  the entries to add or update
+     * @throws         IllegalArgumentException if entries, or any of its keys or values, is null
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) throws IllegalArgumentException
+    {
+        long stamp = lock.writeLock();
+        try {
+            tree.putAll(entries);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Removes the entry of a given key and returns its value
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key of the entry to remove
+     * @return     the value associated with key if key was in the tree, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public V remove(K key) throws IllegalArgumentException
+    {
+        long stamp = lock.writeLock();
+        try {
+            return tree.remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Returns the value associated with a given key, without locking unless a writer interferes,
+     * in which case it waits for the read lock
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     the value associated with key if key is in the tree, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public V get(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L)
+        {
+            try {
+                BSTNode<K, V> match = find(key, EXACT);
+                V value = match == null ? null : match.getValue();
+                if (lock.validate(stamp))
+                    return value;
+            } catch (RuntimeException e) {
+                // A torn read; fall back to the read lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            BSTNode<K, V> match = find(key, EXACT);
+            return match == null ? null : match.getValue();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Returns whether the tree holds a given key, without locking unless a writer interferes,
+     * in which case it waits for the read lock
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     true if key is in the tree, false otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public boolean containsKey(K key) throws IllegalArgumentException
+    {
+        return get(key) != null;
+    }
+
+
+    /**
+     * Finds and returns the largest key in the tree that is smaller than the given key,
+     * without locking unless a writer interferes, in which case it waits for the read lock
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the predecessor for
+     * @return     the predecessor of key if the predecessor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K predecessor(K key) throws IllegalArgumentException
+    {
+        return neighbour(key, LOWER);
+    }
+
+
+    /**
+     * Finds and returns the smallest key in the tree that is larger than the given key,
+     * without locking unless a writer interferes, in which case it waits for the read lock
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the successor for
+     * @return     the successor of key if the successor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K successor(K key) throws IllegalArgumentException
+    {
+        return neighbour(key, HIGHER);
+    }
+    private K neighbour(K key, int mode)
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L)
+        {
+            try {
+                BSTNode<K, V> match = find(key, mode);
+                K neighbour = match == null ? null : match.getKey();
+                if (lock.validate(stamp))
+                    return neighbour;
+            } catch (RuntimeException e) {
+                // A torn read; fall back to the read lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            BSTNode<K, V> match = find(key, mode);
+            return match == null ? null : match.getKey();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Returns the number of entries in the tree
+     *
+     * @return  the size of the tree
+     */
+    public int size()
+    {
+        long stamp = lock.tryOptimisticRead();
+        BSTNode<K, V> root = tree.getRoot();
+        int size = root == null ? 0 : root.getSize();
+        if (lock.validate(stamp))
+            return size;
+
+        stamp = lock.readLock();
+        try {
+            return tree.size(tree.getRoot());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in ascending order, under the read lock
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  a list consisting of all keys in the tree in the ascending order
+     */
+    public List<K> inOrder()
+    {
+        long stamp = lock.readLock();
+        try {
+            return tree.inOrder();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Finds and returns the k smallest keys in ascending order, under the read lock
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of smallest keys to find
+     * @return   the list of k smallest keys in ascending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public List<K> kSmallest(int k) throws IllegalArgumentException
+    {
+        long stamp = lock.readLock();
+        try {
+            return tree.kSmallest(k);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Finds and returns up to limit smallest keys in ascending order, under the read lock
+     *
+     * Unlike kSmallest(), a tree holding fewer than limit keys returns all of them.
+     *
+     * @param limit  the largest number of keys to return
+     * @return       the list of min(limit, size) smallest keys in ascending order
+     */
+    List<K> smallest(int limit)
+    {
+        long stamp = lock.readLock();
+        try {
+            return tree.kSmallest(Math.min(limit, tree.size(tree.getRoot())));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Returns an immutable snapshot of the tree, which readers may traverse without any lock
+     *
+     * Time Complexity: O(1)
+     *
+     * @return  a read-only BST with the current contents
+     */
+    public BST<K, V> snapshot()
+    {
+        long stamp = lock.writeLock();
+        try {
+            return tree.snapshot();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Returns a snapshot of the counters collected by the tree, under the read lock
+     *
+     * With -Dbst.stats=true they count the searches of get(), predecessor() and successor()
+     * as well as those of the writers, including the optimistic ones that run without a lock.
+     *
+     * @return  the counters, with the current height and size of the tree
+     */
+    public BSTStats stats()
+    {
+        long stamp = lock.readLock();
+        try {
+            return tree.stats();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Resets the counters returned by stats() to zero
+     */
+    public void resetStats()
+    {
+        long stamp = lock.writeLock();
+        try {
+            tree.resetStats();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Takes the write lock, for ShardedBST to re-check its layout before changing the tree
+     *
+     * @return  the stamp to pass to unlockWrite()
+     */
+    long writeLock()
+    {
+        return lock.writeLock();
+    }
+
+
+    /**
+     * Releases the write lock taken by writeLock()
+     *
+     * @param stamp  the stamp returned by writeLock()
+     */
+    void unlockWrite(long stamp)
+    {
+        lock.unlockWrite(stamp);
+    }
+
+
+    /**
+     * Returns the underlying tree, which only a holder of the write lock may use
+     *
+     * @return  the underlying BST
+     */
+    BST<K, V> tree()
+    {
+        return tree;
+    }
+
+
+    /**
+     * Searches the tree for a key, or for its predecessor or successor, in at most BST.MAX_HEIGHT steps
+     *
+     * With -Dbst.stats=true every completed search is counted in stats(), so a lookup that
+     * fails validation and searches again under the read lock counts twice.
+     *
+     * @param key   the key to search for
+     * @param mode  EXACT, LOWER or HIGHER
+     * @return      the matching node, null if there is none
+     * @throws      IllegalStateException if the search runs deeper than any consistent tree
+     */
+    private BSTNode<K, V> find(K key, int mode)
+    {
+        BSTNode<K, V> node = tree.getRoot();
+        BSTNode<K, V> match = null;
+        int pathLength = 0;
+        while (node != null)
+        {
+            if (pathLength == BST.MAX_HEIGHT)
+                throw new IllegalStateException();
+            pathLength++;
+
+            int cmp = key.compareTo(node.getKey());
+            if (mode == EXACT)
+            {
+                if (cmp == 0)
+                {
+                    match = node;
+                    break;
+                }
+                node = cmp < 0 ? node.getLeft() : node.getRight();
+            }
+            else if (mode == LOWER ? cmp > 0 : cmp < 0)
+            {
+                match = node;
+                node = mode == LOWER ? node.getRight() : node.getLeft();
+            }
+            else
+                node = mode == LOWER ? node.getLeft() : node.getRight();
+        }
+
+        if (BST.STATS)
+            tree.recordSearch(pathLength);
+        return match;
+    }
+}
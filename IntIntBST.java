@@ -0,0 +1,449 @@
+/**
+ * A BST specialized for int keys and int values
+ *
+ * Works like BST<Integer, Integer> but stores unboxed keys and values in its nodes and
+ * compares keys with < instead of Comparable.compareTo(). Absent keys and values are
+ * reported with the noEntryKey and noEntryValue given at construction, so callers should
+ * pick sentinels that are never stored, or check containsKey() first.
+ */
+
+import java.util.Arrays;
+
+public class IntIntBST {
+    private Node root;
+    private final int noEntryKey;
+    private final int noEntryValue;
+    private boolean removed; // Whether the last removeHelper() call unlinked a node
+    private int removedValue; // The value of the node it unlinked
+    private final Node[] path = new Node[BST.MAX_HEIGHT]; // Search path of put()
+
+    /**
+     * Initializes an empty tree reporting Integer.MIN_VALUE for absent keys and 0 for absent values.
+     */
+    public IntIntBST() {
+        this(Integer.MIN_VALUE, 0);
+    }
+
+    /**
+     * Initializes an empty tree with the given sentinels for absent keys and values.
+     *
+     * @param noEntryKey    the key returned by predecessor() and successor() when there is none
+     * @param noEntryValue  the value returned by get() and remove() for an absent key
+     */
+    public IntIntBST(int noEntryKey, int noEntryValue) {
+        this.noEntryKey = noEntryKey;
+        this.noEntryValue = noEntryValue;
+    }
+
+    /**
+     * Adds a new entry to the tree or updates the value of an existing key in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key    the key of the entry to add or update
+     * @param value  the value associated with key
+     */
+    public void put(int key, int value)
+    {
+        if (root == null)
+        {
+            root = new Node(key, value);
+            return;
+        }
+
+        int depth = 0;
+        Node node = root;
+        while (true)
+        {
+            if (key == node.key)
+            {
+                node.value = value;
+                return;
+            }
+
+            path[depth++] = node;
+            Node next = key < node.key ? node.left : node.right;
+            if (next == null)
+            {
+                if (key < node.key)
+                    node.left = new Node(key, value);
+                else
+                    node.right = new Node(key, value);
+                break;
+            }
+            node = next;
+        }
+
+        while (--depth > 0)
+        {
+            Node child = path[depth];
+            Node parent = path[depth - 1];
+            path[depth] = null;
+            Node balanced = balance(child);
+            if (parent.left == child)
+                parent.left = balanced;
+            else
+                parent.right = balanced;
+        }
+        root = balance(path[0]);
+        path[0] = null;
+    }
+
+
+    /**
+     * Returns the value associated with a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     the value associated with key if key is in the tree, noEntryValue otherwise
+     */
+    public int get(int key)
+    {
+        Node match = getHelper(key);
+        return match == null ? noEntryValue : match.value;
+    }
+
+
+    /**
+     * Returns whether the tree holds a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     true if key is in the tree, false otherwise
+     */
+    public boolean containsKey(int key)
+    {
+        return getHelper(key) != null;
+    }
+    private Node getHelper(int key)
+    {
+        Node node = root;
+        while (node != null)
+        {
+            if (key == node.key)
+                return node;
+            node = key < node.key ? node.left : node.right;
+        }
+        return null;
+    }
+
+
+    /**
+     * Removes the entry of a given key and returns its value
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key of the entry to remove
+     * @return     the value associated with key if key was in the tree, noEntryValue otherwise
+     */
+    public int remove(int key)
+    {
+        root = removeHelper(root, key);
+        if (!removed)
+            return noEntryValue;
+
+        removed = false;
+        return removedValue;
+    }
+    private Node removeHelper(Node node, int key)
+    {
+        if (node == null)
+            return null;
+
+        if (key < node.key)
+            node.left = removeHelper(node.left, key);
+        else if (key > node.key)
+            node.right = removeHelper(node.right, key);
+        else
+        {
+            removed = true;
+            removedValue = node.value;
+            if (node.left == null)
+                return node.right;
+            if (node.right == null)
+                return node.left;
+
+            Node successor = node.right;
+            while (successor.left != null)
+                successor = successor.left;
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return balance(node);
+    }
+    private Node removeMin(Node node)
+    {
+        if (node.left == null)
+            return node.right;
+
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+
+    /**
+     * Returns the number of entries in the tree
+     *
+     * @return  the size of the tree
+     */
+    public int size()
+    {
+        return size(root);
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in ascending order
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  an array of all keys in the tree in ascending order
+     */
+    public int[] inOrder()
+    {
+        int[] keys = new int[size(root)];
+        inOrderHelper(root, keys, 0);
+        return keys;
+    }
+    private int inOrderHelper(Node node, int[] keys, int index)
+    {
+        if (node == null)
+            return index;
+
+        index = inOrderHelper(node.left, keys, index);
+        keys[index++] = node.key;
+        return inOrderHelper(node.right, keys, index);
+    }
+
+
+    /**
+     * Finds and returns the k smallest keys in ascending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of smallest keys to find
+     * @return   an array of the k smallest keys in ascending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public int[] kSmallest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size(root))
+            throw new IllegalArgumentException();
+
+        int[] smallest = new int[k];
+        kSmallestHelper(root, smallest, 0);
+        return smallest;
+    }
+    private int kSmallestHelper(Node node, int[] smallest, int index)
+    {
+        if (node == null || index == smallest.length)
+            return index;
+
+        index = kSmallestHelper(node.left, smallest, index);
+        if (index == smallest.length)
+            return index;
+        smallest[index++] = node.key;
+        return kSmallestHelper(node.right, smallest, index);
+    }
+
+
+    /**
+     * Finds and returns the k largest keys in descending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of largest keys to find
+     * @return   an array of the k largest keys in descending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public int[] kLargest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size(root))
+            throw new IllegalArgumentException();
+
+        int[] largest = new int[k];
+        kLargestHelper(root, largest, 0);
+        return largest;
+    }
+    private int kLargestHelper(Node node, int[] largest, int index)
+    {
+        if (node == null || index == largest.length)
+            return index;
+
+        index = kLargestHelper(node.right, largest, index);
+        if (index == largest.length)
+            return index;
+        largest[index++] = node.key;
+        return kLargestHelper(node.left, largest, index);
+    }
+
+
+    /**
+     * Finds and returns the largest key in the tree that is smaller than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the predecessor for
+     * @return     the predecessor of key if it exists, noEntryKey otherwise
+     */
+    public int predecessor(int key)
+    {
+        Node node = root;
+        Node match = null;
+        while (node != null)
+        {
+            if (node.key < key)
+            {
+                match = node;
+                node = node.right;
+            }
+            else
+                node = node.left;
+        }
+        return match == null ? noEntryKey : match.key;
+    }
+
+
+    /**
+     * Finds and returns the smallest key in the tree that is larger than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the successor for
+     * @return     the successor of key if it exists, noEntryKey otherwise
+     */
+    public int successor(int key)
+    {
+        Node node = root;
+        Node match = null;
+        while (node != null)
+        {
+            if (node.key > key)
+            {
+                match = node;
+                node = node.left;
+            }
+            else
+                node = node.right;
+        }
+        return match == null ? noEntryKey : match.key;
+    }
+
+
+    /**
+     * Returns the key reported when there is no matching key
+     *
+     * @return  the sentinel key
+     */
+    public int getNoEntryKey()
+    {
+        return noEntryKey;
+    }
+
+
+    /**
+     * Returns the value reported for an absent key
+     *
+     * @return  the sentinel value
+     */
+    public int getNoEntryValue()
+    {
+        return noEntryValue;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(inOrder());
+    }
+
+
+    private static int height(Node node)
+    {
+        return node == null ? -1 : node.height;
+    }
+
+
+    private static int size(Node node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+
+    private static void update(Node node)
+    {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.size = size(node.left) + 1 + size(node.right);
+    }
+
+
+    private static Node rotateRight(Node node)
+    {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+
+    private static Node rotateLeft(Node node)
+    {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+
+    /**
+     * Balances an imbalanced node by left and right rotations, as in BST.balance()
+     *
+     * @param node  the node to balance
+     * @return      the new root of the subtree after balance
+     */
+    private static Node balance(Node node)
+    {
+        update(node);
+        int balanceFactor = height(node.left) - height(node.right);
+        if (balanceFactor > 1)
+        {
+            if (height(node.left.left) < height(node.left.right))
+                node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1)
+        {
+            if (height(node.right.right) < height(node.right.left))
+                node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+
+    /**
+     * Node of an IntIntBST; the balance factor is derived from the children's heights
+     */
+    private static final class Node {
+        final int key;
+        int value;
+        Node left;
+        Node right;
+        int height;
+        int size = 1;
+
+        Node(int key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
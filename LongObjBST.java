@@ -0,0 +1,435 @@
+/**
+ * A BST specialized for long keys and object values
+ *
+ * Works like BST<Long, V> but stores unboxed keys in its nodes and compares them with <
+ * instead of Comparable.compareTo(). Absent values are reported as null, and absent keys
+ * with the noEntryKey given at construction, so callers should pick a sentinel key that
+ * is never stored.
+ */
+
+import java.util.Arrays;
+
+public class LongObjBST<V> {
+    private Node<V> root;
+    private final long noEntryKey;
+    private Node<V> removed; // The node unlinked by the last removeHelper() call
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Node<V>[] path = new Node[BST.MAX_HEIGHT]; // Search path of put()
+
+    /**
+     * Initializes an empty tree reporting Long.MIN_VALUE for absent keys.
+     */
+    public LongObjBST() {
+        this(Long.MIN_VALUE);
+    }
+
+    /**
+     * Initializes an empty tree with the given sentinel for absent keys.
+     *
+     * @param noEntryKey  the key returned by predecessor() and successor() when there is none
+     */
+    public LongObjBST(long noEntryKey) {
+        this.noEntryKey = noEntryKey;
+    }
+
+    /**
+     * Adds a new entry to the tree or updates the value of an existing key in the tree
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key    the key of the entry to add or update
+     * @param value  the value associated with key
+     * @throws       IllegalArgumentException if value is null
+     */
+    public void put(long key, V value) throws IllegalArgumentException
+    {
+        if (value == null)
+            throw new IllegalArgumentException();
+        if (root == null)
+        {
+            root = new Node<V>(key, value);
+            return;
+        }
+
+        int depth = 0;
+        Node<V> node = root;
+        while (true)
+        {
+            if (key == node.key)
+            {
+                node.value = value;
+                return;
+            }
+
+            path[depth++] = node;
+            Node<V> next = key < node.key ? node.left : node.right;
+            if (next == null)
+            {
+                if (key < node.key)
+                    node.left = new Node<V>(key, value);
+                else
+                    node.right = new Node<V>(key, value);
+                break;
+            }
+            node = next;
+        }
+
+        while (--depth > 0)
+        {
+            Node<V> child = path[depth];
+            Node<V> parent = path[depth - 1];
+            path[depth] = null;
+            Node<V> balanced = balance(child);
+            if (parent.left == child)
+                parent.left = balanced;
+            else
+                parent.right = balanced;
+        }
+        root = balance(path[0]);
+        path[0] = null;
+    }
+
+
+    /**
+     * Returns the value associated with a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     the value associated with key if key is in the tree, null otherwise
+     */
+    public V get(long key)
+    {
+        Node<V> match = getHelper(key);
+        return match == null ? null : match.value;
+    }
+
+
+    /**
+     * Returns whether the tree holds a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     true if key is in the tree, false otherwise
+     */
+    public boolean containsKey(long key)
+    {
+        return getHelper(key) != null;
+    }
+    private Node<V> getHelper(long key)
+    {
+        Node<V> node = root;
+        while (node != null)
+        {
+            if (key == node.key)
+                return node;
+            node = key < node.key ? node.left : node.right;
+        }
+        return null;
+    }
+
+
+    /**
+     * Removes the entry of a given key and returns its value
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key of the entry to remove
+     * @return     the value associated with key if key was in the tree, null otherwise
+     */
+    public V remove(long key)
+    {
+        root = removeHelper(root, key);
+        Node<V> match = removed;
+        removed = null;
+        return match == null ? null : match.value;
+    }
+    private Node<V> removeHelper(Node<V> node, long key)
+    {
+        if (node == null)
+            return null;
+
+        if (key < node.key)
+            node.left = removeHelper(node.left, key);
+        else if (key > node.key)
+            node.right = removeHelper(node.right, key);
+        else
+        {
+            removed = node;
+            if (node.left == null)
+                return node.right;
+            if (node.right == null)
+                return node.left;
+
+            Node<V> successor = node.right;
+            while (successor.left != null)
+                successor = successor.left;
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return balance(node);
+    }
+    private Node<V> removeMin(Node<V> node)
+    {
+        if (node.left == null)
+            return node.right;
+
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+
+    /**
+     * Returns the number of entries in the tree
+     *
+     * @return  the size of the tree
+     */
+    public int size()
+    {
+        return size(root);
+    }
+
+
+    /**
+     * Finds and returns all keys in the tree in ascending order
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  an array of all keys in the tree in ascending order
+     */
+    public long[] inOrder()
+    {
+        long[] keys = new long[size(root)];
+        inOrderHelper(root, keys, 0);
+        return keys;
+    }
+    private int inOrderHelper(Node<V> node, long[] keys, int index)
+    {
+        if (node == null)
+            return index;
+
+        index = inOrderHelper(node.left, keys, index);
+        keys[index++] = node.key;
+        return inOrderHelper(node.right, keys, index);
+    }
+
+
+    /**
+     * Finds and returns the k smallest keys in ascending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of smallest keys to find
+     * @return   an array of the k smallest keys in ascending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public long[] kSmallest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size(root))
+            throw new IllegalArgumentException();
+
+        long[] smallest = new long[k];
+        kSmallestHelper(root, smallest, 0);
+        return smallest;
+    }
+    private int kSmallestHelper(Node<V> node, long[] smallest, int index)
+    {
+        if (node == null || index == smallest.length)
+            return index;
+
+        index = kSmallestHelper(node.left, smallest, index);
+        if (index == smallest.length)
+            return index;
+        smallest[index++] = node.key;
+        return kSmallestHelper(node.right, smallest, index);
+    }
+
+
+    /**
+     * Finds and returns the k largest keys in descending order
+     *
+     * Time Complexity: O(log n + k)
+     *
+     * @param k  the number of largest keys to find
+     * @return   an array of the k largest keys in descending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the tree
+     */
+    public long[] kLargest(int k) throws IllegalArgumentException
+    {
+        if (k < 0 || k > size(root))
+            throw new IllegalArgumentException();
+
+        long[] largest = new long[k];
+        kLargestHelper(root, largest, 0);
+        return largest;
+    }
+    private int kLargestHelper(Node<V> node, long[] largest, int index)
+    {
+        if (node == null || index == largest.length)
+            return index;
+
+        index = kLargestHelper(node.right, largest, index);
+        if (index == largest.length)
+            return index;
+        largest[index++] = node.key;
+        return kLargestHelper(node.left, largest, index);
+    }
+
+
+    /**
+     * Finds and returns the largest key in the tree that is smaller than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the predecessor for
+     * @return     the predecessor of key if it exists, noEntryKey otherwise
+     */
+    public long predecessor(long key)
+    {
+        Node<V> node = root;
+        Node<V> match = null;
+        while (node != null)
+        {
+            if (node.key < key)
+            {
+                match = node;
+                node = node.right;
+            }
+            else
+                node = node.left;
+        }
+        return match == null ? noEntryKey : match.key;
+    }
+
+
+    /**
+     * Finds and returns the smallest key in the tree that is larger than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the successor for
+     * @return     the successor of key if it exists, noEntryKey otherwise
+     */
+    public long successor(long key)
+    {
+        Node<V> node = root;
+        Node<V> match = null;
+        while (node != null)
+        {
+            if (node.key > key)
+            {
+                match = node;
+                node = node.left;
+            }
+            else
+                node = node.right;
+        }
+        return match == null ? noEntryKey : match.key;
+    }
+
+
+    /**
+     * Returns the key reported when there is no matching key
+     *
+     * @return  the sentinel key
+     */
+    public long getNoEntryKey()
+    {
+        return noEntryKey;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(inOrder());
+    }
+
+
+    private static int height(Node<?> node)
+    {
+        return node == null ? -1 : node.height;
+    }
+
+
+    private static int size(Node<?> node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+
+    private static void update(Node<?> node)
+    {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.size = size(node.left) + 1 + size(node.right);
+    }
+
+
+    private static <V> Node<V> rotateRight(Node<V> node)
+    {
+        Node<V> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+
+    private static <V> Node<V> rotateLeft(Node<V> node)
+    {
+        Node<V> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+
+    /**
+     * Balances an imbalanced node by left and right rotations, as in BST.balance()
+     *
+     * @param node  the node to balance
+     * @return      the new root of the subtree after balance
+     */
+    private static <V> Node<V> balance(Node<V> node)
+    {
+        update(node);
+        int balanceFactor = height(node.left) - height(node.right);
+        if (balanceFactor > 1)
+        {
+            if (height(node.left.left) < height(node.left.right))
+                node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1)
+        {
+            if (height(node.right.right) < height(node.right.left))
+                node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+
+    /**
+     * Node of a LongObjBST; the balance factor is derived from the children's heights
+     */
+    private static final class Node<V> {
+        final long key;
+        V value;
+        Node<V> left;
+        Node<V> right;
+        int height;
+        int size = 1;
+
+        Node(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * A read-only map over a BST snapshot file with int keys, queried in place
+ *
+ * The snapshot, written by BSTSerializer with BSTCodec.INT keys, is mapped into memory
+ * and never loaded. The keys block is a sorted int array, so get(), predecessor() and
+ * successor() binary-search it directly. Only the value a lookup returns is decoded. The
+ * page cache holds the file, so opening even a large snapshot takes constant time and
+ * heap, and several processes may share one copy of it.
+ *
+ * Lookups read the buffer at absolute positions only, so a map may be shared by threads.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+
+public class MappedIntBST<V> {
+    private final MappedByteBuffer buffer;
+    private final BSTCodec<? extends V> valueCodec;
+    private final int size;
+    private final int valueWidth;
+    private final int valuesStart;
+    private final int offsetsStart;
+    private final int noEntryKey;
+
+    /**
+     * Maps a snapshot file, reporting Integer.MIN_VALUE for absent keys.
+     *
+     * @param file        the snapshot to map
+     * @param valueCodec  the codec the values were written with
+     * @throws            IllegalArgumentException if file or valueCodec is null
+     * @throws            IOException if the file cannot be mapped, is not a snapshot,
+     *                    or its keys are not 4-byte ints
+     */
+    public MappedIntBST(Path file, BSTCodec<? extends V> valueCodec) throws IOException {
+        this(file, valueCodec, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Maps a snapshot file with the given sentinel for absent keys.
+     *
+     * @param file        the snapshot to map
+     * @param valueCodec  the codec the values were written with
+     * @param noEntryKey  the key returned by predecessor() and successor() when there is none
+     * @throws            IllegalArgumentException if file or valueCodec is null
+     * @throws            IOException if the file cannot be mapped, is not a snapshot,
+     *                    or its keys are not 4-byte ints
+     */
+    public MappedIntBST(Path file, BSTCodec<? extends V> valueCodec, int noEntryKey) throws IOException {
+        if (file == null || valueCodec == null)
+            throw new IllegalArgumentException();
+
+        buffer = BSTSerializer.map(file);
+        if (buffer.getInt(BSTSerializer.KEY_WIDTH) != Integer.BYTES)
+            throw new IOException(file + " does not hold int keys");
+
+        this.valueCodec = valueCodec;
+        this.noEntryKey = noEntryKey;
+        size = buffer.getInt(BSTSerializer.SIZE);
+        valueWidth = buffer.getInt(BSTSerializer.VALUE_WIDTH);
+        valuesStart = buffer.getInt(BSTSerializer.VALUES_START);
+        offsetsStart = buffer.getInt(BSTSerializer.OFFSETS_START);
+    }
+
+    /**
+     * Returns the value associated with a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     the value associated with key if key is in the map, null otherwise
+     */
+    public V get(int key)
+    {
+        int index = lowerBound(key);
+        if (index == size || key(index) != key)
+            return null;
+
+        int offset = valueWidth < 0 ? buffer.getInt(offsetsStart + index * Integer.BYTES) : index * valueWidth;
+        ByteBuffer in = buffer.duplicate();
+        in.position(valuesStart + offset);
+        return valueCodec.read(in);
+    }
+
+
+    /**
+     * Returns whether the map holds a given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     true if key is in the map, false otherwise
+     */
+    public boolean containsKey(int key)
+    {
+        int index = lowerBound(key);
+        return index < size && key(index) == key;
+    }
+
+
+    /**
+     * Finds and returns the largest key in the map that is smaller than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the predecessor for
+     * @return     the predecessor of key if it exists, noEntryKey otherwise
+     */
+    public int predecessor(int key)
+    {
+        int index = lowerBound(key) - 1;
+        return index < 0 ? noEntryKey : key(index);
+    }
+
+
+    /**
+     * Finds and returns the smallest key in the map that is larger than the given key.
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to find the successor for
+     * @return     the successor of key if it exists, noEntryKey otherwise
+     */
+    public int successor(int key)
+    {
+        int index = key == Integer.MAX_VALUE ? size : lowerBound(key + 1);
+        return index == size ? noEntryKey : key(index);
+    }
+
+
+    /**
+     * Returns the number of entries in the map
+     *
+     * @return  the size of the map
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Returns the sentinel reported for absent keys
+     *
+     * @return  noEntryKey
+     */
+    public int getNoEntryKey()
+    {
+        return noEntryKey;
+    }
+
+
+    /**
+     * Returns the index of the first key in the keys block that is >= key
+     */
+    private int lowerBound(int key)
+    {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (key(mid) < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+
+    private int key(int index)
+    {
+        return buffer.getInt(BSTSerializer.HEADER_BYTES + index * Integer.BYTES);
+    }
+}
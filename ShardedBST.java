@@ -0,0 +1,412 @@
+/**
+ * A thread-safe ordered map that range-partitions its keys across independent ConcurrentBSTs
+ *
+ * Shard i holds the keys k with bounds[i - 1] <= k < bounds[i], so writers to different
+ * key ranges take different locks instead of contending on one root. Because the shards
+ * are ordered by range, ordered results are the concatenation of the shards in turn.
+ *
+ * The bounds and the shards are published together as one immutable Layout. Writers route
+ * through the current layout without any shared lock, take the write lock of the target
+ * shard alone, and re-check that the layout is still current before changing it; readers
+ * re-check the layout after reading. When an insert leaves a shard holding more than
+ * SKEW_FACTOR times the average, rebalance() locks that shard and as few neighbours as it
+ * can spread the entries over, redraws the bounds between them, rebuilds them in time
+ * linear in their entries and publishes the result as a new layout, which sends every
+ * operation routed through the old one back to retry. Shards outside the window carry
+ * over unchanged, so only operations on the redrawn shards wait for the rebuild.
+ *
+ * Operations on a single key are linearizable. Operations spanning several shards, such
+ * as inOrder(), kSmallest() and size(), see each shard at a different moment.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ShardedBST<K extends Comparable<? super K>, V> {
+    private static final int SKEW_FACTOR = 4; // A shard this many times the average triggers rebalance()
+    private static final int MIN_REBALANCE_SIZE = 1 << 10; // Shards smaller than this never trigger it
+
+    private final Object rebalanceLock = new Object(); // Serializes rebalance()
+    private volatile Layout<K, V> layout;
+    private volatile int rebalanceThreshold = MIN_REBALANCE_SIZE; // The shard size that triggers rebalance()
+
+    /**
+     * Initializes an empty map with one shard more than the given split points.
+     *
+     * @param splitPoints  the smallest key of every shard but the first, in strictly ascending order
+     * @throws             IllegalArgumentException if splitPoints or any of its keys is null,
+     *                     or the keys are not strictly ascending
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ShardedBST(K[] splitPoints) {
+        if (splitPoints == null)
+            throw new IllegalArgumentException();
+        for (int i = 0; i < splitPoints.length; i++)
+        {
+            if (splitPoints[i] == null || (i > 0 && splitPoints[i - 1].compareTo(splitPoints[i]) >= 0))
+                throw new IllegalArgumentException();
+        }
+
+        ConcurrentBST<K, V>[] shards = new ConcurrentBST[splitPoints.length + 1];
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new ConcurrentBST<>();
+        layout = new Layout<>(splitPoints.clone(), shards);
+    }
+
+    /**
+     * Adds a new entry to the map or updates the value of an existing key in the map,
+     * rebalancing the shards if the one it lands in has grown too large
+     *
+     * Time Complexity: O(log n) amortized
+     *
+     * @param key    the key of the entry to add or update
+     * @param value  the value associated with key
+     * @throws       IllegalArgumentException if key or value is null
+     */
+    public void put(K key, V value) throws IllegalArgumentException
+    {
+        if (key == null || value == null)
+            throw new IllegalArgumentException();
+
+        int shardSize = 0;
+        for (boolean done = false; !done; )
+        {
+            Layout<K, V> layout = this.layout;
+            ConcurrentBST<K, V> shard = layout.shards[layout.shardIndex(key)];
+            long stamp = shard.writeLock();
+            try {
+                if (layout == this.layout) // Otherwise a rebalance retired the shard
+                {
+                    BST<K, V> tree = shard.tree();
+                    tree.put(key, value);
+                    shardSize = tree.getRoot().getSize();
+                    done = true;
+                }
+            } finally {
+                shard.unlockWrite(stamp);
+            }
+        }
+
+        if (shardSize > rebalanceThreshold)
+            rebalance();
+    }
+
+
+    /**
+     * Removes the entry of a given key and returns its value
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key of the entry to remove
+     * @return     the value associated with key if key was in the map, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public V remove(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        for (;;)
+        {
+            Layout<K, V> layout = this.layout;
+            ConcurrentBST<K, V> shard = layout.shards[layout.shardIndex(key)];
+            long stamp = shard.writeLock();
+            try {
+                if (layout == this.layout) // Otherwise a rebalance retired the shard
+                    return shard.tree().remove(key);
+            } finally {
+                shard.unlockWrite(stamp);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the value associated with a given key, without locking unless a writer of its
+     * shard interferes; a rebalance running meanwhile blocks it
+     *
+     * Time Complexity: O(log n)
+     *
+     * @param key  the key to search for
+     * @return     the value associated with key if key is in the map, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public V get(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        for (;;)
+        {
+            Layout<K, V> layout = this.layout;
+            V value = layout.shards[layout.shardIndex(key)].get(key);
+            if (layout == this.layout)
+                return value;
+        }
+    }
+
+
+    /**
+     * Finds and returns the largest key in the map that is smaller than the given key,
+     * falling back to the shards of smaller ranges when the key's own shard has none
+     *
+     * Time Complexity: O(log n + number of shards)
+     *
+     * @param key  the key to find the predecessor for
+     * @return     the predecessor of key if the predecessor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K predecessor(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        for (;;)
+        {
+            Layout<K, V> layout = this.layout;
+            K predecessor = null;
+            for (int i = layout.shardIndex(key); i >= 0 && predecessor == null; i--)
+                predecessor = layout.shards[i].predecessor(key);
+            if (layout == this.layout)
+                return predecessor;
+        }
+    }
+
+
+    /**
+     * Finds and returns the smallest key in the map that is larger than the given key,
+     * falling back to the shards of larger ranges when the key's own shard has none
+     *
+     * Time Complexity: O(log n + number of shards)
+     *
+     * @param key  the key to find the successor for
+     * @return     the successor of key if the successor exists, null otherwise
+     * @throws     IllegalArgumentException if key is null
+     */
+    public K successor(K key) throws IllegalArgumentException
+    {
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        for (;;)
+        {
+            Layout<K, V> layout = this.layout;
+            K successor = null;
+            for (int i = layout.shardIndex(key); i < layout.shards.length && successor == null; i++)
+                successor = layout.shards[i].successor(key);
+            if (layout == this.layout)
+                return successor;
+        }
+    }
+
+
+    /**
+     * Returns the number of entries in the map
+     *
+     * @return  the sum of the sizes of the shards
+     */
+    public int size()
+    {
+        for (;;)
+        {
+            Layout<K, V> layout = this.layout;
+            int size = 0;
+            for (ConcurrentBST<K, V> shard : layout.shards)
+                size += shard.size();
+            if (layout == this.layout)
+                return size;
+        }
+    }
+
+
+    /**
+     * Finds and returns all keys in the map in ascending order
+     *
+     * Time Complexity: O(n)
+     *
+     * @return  a list consisting of all keys in the map in the ascending order
+     */
+    public List<K> inOrder()
+    {
+        for (;;)
+        {
+            Layout<K, V> layout = this.layout;
+            ArrayList<K> order = new ArrayList<>();
+            for (ConcurrentBST<K, V> shard : layout.shards)
+                order.addAll(shard.inOrder());
+            if (layout == this.layout)
+                return order;
+        }
+    }
+
+
+    /**
+     * Finds and returns the k smallest keys in ascending order, taking them from the shards
+     * of the smallest ranges first
+     *
+     * Time Complexity: O(log n + k + number of shards)
+     *
+     * @param k  the number of smallest keys to find
+     * @return   the list of k smallest keys in ascending order
+     * @throws   IllegalArgumentException if k < 0 or k > the size of the map
+     */
+    public List<K> kSmallest(int k) throws IllegalArgumentException
+    {
+        if (k < 0)
+            throw new IllegalArgumentException();
+
+        for (;;)
+        {
+            Layout<K, V> layout = this.layout;
+            ArrayList<K> smallest = new ArrayList<>(k);
+            for (int i = 0; i < layout.shards.length && smallest.size() < k; i++)
+                smallest.addAll(layout.shards[i].smallest(k - smallest.size()));
+            if (layout != this.layout)
+                continue;
+            if (smallest.size() < k)
+                throw new IllegalArgumentException();
+            return smallest;
+        }
+    }
+
+
+    /**
+     * Returns the number of shards
+     *
+     * @return  the number of shards
+     */
+    public int shardCount()
+    {
+        return layout.shards.length;
+    }
+
+
+    /**
+     * Spreads the entries of the largest shard over it and its neighbours, if it holds more
+     * than SKEW_FACTOR times the average
+     *
+     * The window of shards to redraw starts at the largest shard and grows towards the
+     * smaller neighbour, one shard at a time, until spreading its entries evenly leaves each
+     * of its shards at most twice the average. Only the shards of the window are locked, so
+     * readers and writers of the others go on while their entries are gathered in order,
+     * split at new bounds and rebuilt balanced with BST.fromSorted(). Those of the window
+     * wait for the whole O(m) rebuild. A shard holding most of the map still has to be
+     * spread over at least half of the shards, which blocks them for O(n).
+     *
+     * Time Complexity: O(m + number of shards) for m entries in the redrawn shards,
+     *                  O(number of shards) when no shard is skewed
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void rebalance()
+    {
+        synchronized (rebalanceLock)
+        {
+            Layout<K, V> layout = this.layout;
+            ConcurrentBST<K, V>[] shards = layout.shards;
+            int[] sizes = new int[shards.length];
+            long total = 0;
+            int largest = 0;
+            for (int i = 0; i < shards.length; i++)
+            {
+                sizes[i] = shards[i].size();
+                total += sizes[i];
+                if (sizes[i] > sizes[largest])
+                    largest = i;
+            }
+
+            long average = total / shards.length;
+            rebalanceThreshold = (int) Math.min(Integer.MAX_VALUE,
+                    Math.max(MIN_REBALANCE_SIZE, SKEW_FACTOR * (average + 1)));
+            if (total < shards.length || sizes[largest] <= SKEW_FACTOR * average)
+                return;
+
+            // Grow the window [from, to) until its average is at most twice the overall one
+            int from = largest;
+            int to = largest + 1;
+            long windowTotal = sizes[largest];
+            while (windowTotal * shards.length > 2 * total * (to - from))
+            {
+                if (to == shards.length || (from > 0 && sizes[from - 1] <= sizes[to]))
+                    windowTotal += sizes[--from];
+                else
+                    windowTotal += sizes[to++];
+            }
+
+            long[] stamps = new long[to - from];
+            for (int i = from; i < to; i++)
+                stamps[i - from] = shards[i].writeLock();
+            try {
+                int count = 0;
+                for (int i = from; i < to; i++)
+                    count += shards[i].tree().size(shards[i].tree().getRoot());
+                if (count < to - from)
+                    return; // Too few entries left to give every shard of the window its own bound
+
+                K[] keys = (K[]) new Comparable[count];
+                V[] values = (V[]) new Object[count];
+                int[] gathered = new int[1];
+                for (int i = from; i < to; i++)
+                {
+                    shards[i].tree().forEachInOrder((key, value) -> {
+                        keys[gathered[0]] = key;
+                        values[gathered[0]++] = value;
+                    });
+                }
+
+                // The bounds at either end of the window stay; those inside it are redrawn
+                K[] newBounds = layout.bounds.clone();
+                ConcurrentBST<K, V>[] newShards = shards.clone();
+                int width = to - from;
+                for (int i = 0; i < width; i++)
+                {
+                    int lo = (int) ((long) count * i / width);
+                    int hi = (int) ((long) count * (i + 1) / width);
+                    if (i > 0)
+                        newBounds[from + i - 1] = keys[lo];
+                    newShards[from + i] = new ConcurrentBST<>(BST.fromSorted(
+                            Arrays.copyOfRange(keys, lo, hi), Arrays.copyOfRange(values, lo, hi)));
+                }
+                this.layout = new Layout<>(newBounds, newShards);
+            } finally {
+                for (int i = from; i < to; i++)
+                    shards[i].unlockWrite(stamps[i - from]);
+            }
+        }
+    }
+
+
+    /**
+     * The bounds and shards of the map, replaced as a whole by rebalance()
+     */
+    private static final class Layout<K extends Comparable<? super K>, V> {
+        final K[] bounds;
+        final ConcurrentBST<K, V>[] shards;
+
+        Layout(K[] bounds, ConcurrentBST<K, V>[] shards) {
+            this.bounds = bounds;
+            this.shards = shards;
+        }
+
+        /**
+         * Returns the index of the shard whose range holds a key, i.e. the number of bounds <= key
+         *
+         * @param key  the key to route
+         * @return     the index of its shard
+         */
+        int shardIndex(K key)
+        {
+            int lo = 0;
+            int hi = bounds.length;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (bounds[mid].compareTo(key) <= 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * The node of a BST that was not created with BST.compact()
+ *
+ * It keeps the size of its subtree in the whole int that a compact BSTNode shares between
+ * size and height, so subtrees may hold up to Integer.MAX_VALUE nodes, and it stores its
+ * height and balance factor in bytes of their own. balance() then reads the balance
+ * factor of a child without looking at the grandchildren. It also stores the snapshot
+ * epoch that lets a persistent tree change its newer nodes in place. Under the default
+ * HotSpot layout (12-byte headers, compressed references) these fields fit in what would
+ * be padding anyway: a StandardBSTNode takes 40 bytes, as the original three-int node
+ * did, and a compact BSTNode takes 32.
+ */
+
+final class StandardBSTNode<K extends Comparable<? super K>, V> extends BSTNode<K, V> {
+    private byte height; // Less than BST.MAX_HEIGHT
+    private byte balanceFactor; // Between -2 and 2
+    private int epoch; // The snapshot epoch of the tree when the node was created or copied
+
+    /**
+     * Constructs a StandardBSTNode with the given key and value.
+     *
+     * @param key    the key stored in the new node
+     * @param value  the value associated with the key
+     */
+    StandardBSTNode(K key, V value) {
+        super(key, value);
+        meta = 1;
+    }
+
+    /**
+     * Constructs a copy of the given node, with the same key, value, children, height,
+     * balance factor, size and epoch.
+     *
+     * @param node  the node to copy
+     */
+    StandardBSTNode(StandardBSTNode<K, V> node) {
+        super(node);
+        this.height = node.height;
+        this.balanceFactor = node.balanceFactor;
+        this.epoch = node.epoch;
+    }
+
+    @Override
+    BSTNode<K, V> copy() {
+        return new StandardBSTNode<K, V>(this);
+    }
+
+    @Override
+    int getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getBalanceFactor() {
+        return balanceFactor;
+    }
+
+    @Override
+    public void setHeight(int height) {
+        this.height = (byte) height;
+    }
+
+    @Override
+    public void setBalanceFactor(int balanceFactor) {
+        this.balanceFactor = (byte) balanceFactor;
+    }
+
+    @Override
+    public int getSize() {
+        return meta;
+    }
+
+    @Override
+    public void setSize(int size) {
+        meta = size;
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Lays out a BST without JavaFX and exports the drawing as SVG or PNG
+ *
+ * A node is placed at x = its in-order rank and y = its depth. The rank of every node
+ * follows from the subtree sizes cached in the nodes, so the layout takes one O(n) pass,
+ * and no two nodes share a column. Since positions are streamed to a Visitor instead of
+ * being stored, exporting a tree of 10M nodes takes no memory beyond the output.
+ * A visitor may also decline a subtree. The PNG export uses this to draw a subtree
+ * narrower than a pixel as a single bar, so its cost depends on the image size rather
+ * than on n. BTView shares the layout, culling what lies outside the pane.
+ *
+ * Run headless, e.g. java -Djava.awt.headless=true TreeLayout 10000000 tree.png
+ */
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+public final class TreeLayout {
+    private static final int SVG_H_GAP = 30; // Distance between consecutive ranks in an SVG
+    private static final int SVG_V_GAP = 50; // Distance between levels in an SVG
+    private static final int SVG_RADIUS = 12;
+    private static final int SVG_LABEL_LIMIT = 10_000; // Larger SVGs leave out the key labels
+    private static final int PNG_V_GAP = 20; // Distance between levels in a PNG, in pixels
+
+    /**
+     * Receives the position of every node laid out
+     */
+    public interface Visitor<K extends Comparable<? super K>, V> {
+        /**
+         * Places a node
+         *
+         * @param node        the node
+         * @param rank        the in-order rank of node, its x-coordinate
+         * @param depth       the depth of node, its y-coordinate
+         * @param parentRank  the rank of the parent of node, -1 for the root
+         * @return            whether to lay out the subtrees of node too
+         */
+        boolean visit(BSTNode<K, V> node, int rank, int depth, int parentRank);
+    }
+
+    private TreeLayout() {
+    }
+
+    /**
+     * Lays out a tree in pre-order, passing the position of every node to a visitor
+     *
+     * Time Complexity: O(n)
+     *
+     * @param root     the root of the tree, may be null
+     * @param visitor  the visitor to receive the positions
+     * @throws         IllegalArgumentException if visitor is null
+     */
+    public static <K extends Comparable<? super K>, V> void layout(BSTNode<K, V> root, Visitor<K, V> visitor)
+            throws IllegalArgumentException
+    {
+        if (visitor == null)
+            throw new IllegalArgumentException();
+        if (root != null)
+            layout(root, 0, 0, -1, visitor);
+    }
+    private static <K extends Comparable<? super K>, V> void layout(BSTNode<K, V> node, int lo, int depth,
+            int parentRank, Visitor<K, V> visitor)
+    {
+        int rank = lo + size(node.getLeft());
+        if (!visitor.visit(node, rank, depth, parentRank))
+            return;
+
+        if (node.getLeft() != null)
+            layout(node.getLeft(), lo, depth + 1, rank, visitor);
+        if (node.getRight() != null)
+            layout(node.getRight(), rank + 1, depth + 1, rank, visitor);
+    }
+
+
+    /**
+     * Writes a drawing of a tree to an SVG file, streaming it node by node
+     *
+     * Trees of more than SVG_LABEL_LIMIT nodes are drawn without key labels.
+     *
+     * Time Complexity: O(n)
+     *
+     * @param tree  the tree to draw
+     * @param file  the file to write
+     * @throws      IllegalArgumentException if tree or file is null
+     * @throws      IOException if the file cannot be written
+     */
+    public static <K extends Comparable<? super K>, V> void writeSvg(BST<K, V> tree, Path file)
+            throws IOException
+    {
+        if (tree == null || file == null)
+            throw new IllegalArgumentException();
+
+        BSTNode<K, V> root = tree.getRoot();
+        int size = root == null ? 0 : root.getSize();
+        int levels = root == null ? 0 : root.getHeight() + 1;
+        boolean labels = size <= SVG_LABEL_LIMIT;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            int width = size * SVG_H_GAP;
+            int height = levels * SVG_V_GAP;
+            out.printf("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" viewBox=\"0 0 %d %d\">%n",
+                    width, height, width, height);
+
+            // Edges first, so that the nodes are painted over them
+            out.println("<g stroke=\"black\">");
+            layout(root, (node, rank, depth, parentRank) -> {
+                if (parentRank >= 0)
+                    out.printf("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\"/>%n",
+                            svgX(parentRank), svgY(depth - 1), svgX(rank), svgY(depth));
+                return true;
+            });
+            out.println("</g>");
+
+            out.printf("<g fill=\"white\" stroke=\"black\" font-size=\"%d\" text-anchor=\"middle\">%n", SVG_RADIUS);
+            layout(root, (node, rank, depth, parentRank) -> {
+                out.printf("<circle cx=\"%d\" cy=\"%d\" r=\"%d\"/>%n", svgX(rank), svgY(depth), SVG_RADIUS);
+                if (labels)
+                    out.printf("<text x=\"%d\" y=\"%d\" fill=\"black\" stroke=\"none\">%s</text>%n",
+                            svgX(rank), svgY(depth) + SVG_RADIUS / 3, escape(String.valueOf(node.getKey())));
+                return true;
+            });
+            out.println("</g>");
+            out.println("</svg>");
+            if (out.checkError())
+                throw new IOException("Cannot write " + file);
+        }
+    }
+    private static int svgX(int rank)
+    {
+        return rank * SVG_H_GAP + SVG_H_GAP / 2;
+    }
+    private static int svgY(int depth)
+    {
+        return depth * SVG_V_GAP + SVG_V_GAP / 2;
+    }
+    private static String escape(String text)
+    {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+
+    /**
+     * Renders a tree into a PNG file of the given width, PNG_V_GAP pixels per level high
+     *
+     * Every subtree narrower than a pixel is drawn as one vertical bar as tall as the
+     * subtree, instead of node by node.
+     *
+     * Time Complexity: O(min(n, width * h)), where h is the height of the tree
+     *
+     * @param tree   the tree to draw
+     * @param file   the file to write
+     * @param width  the width of the image in pixels
+     * @throws       IllegalArgumentException if tree or file is null, or width < 1
+     * @throws       IOException if the file cannot be written
+     */
+    public static <K extends Comparable<? super K>, V> void writePng(BST<K, V> tree, Path file, int width)
+            throws IOException
+    {
+        if (tree == null || file == null || width < 1)
+            throw new IllegalArgumentException();
+
+        BSTNode<K, V> root = tree.getRoot();
+        int size = root == null ? 0 : root.getSize();
+        int levels = root == null ? 1 : root.getHeight() + 1;
+        BufferedImage image = new BufferedImage(width, levels * PNG_V_GAP, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(Color.BLACK);
+
+        double unit = (double) width / Math.max(1, size); // Pixels per rank
+        int radius = (int) Math.min(PNG_V_GAP / 4, unit / 3);
+        layout(root, (node, rank, depth, parentRank) -> {
+            int x = (int) ((rank + 0.5) * unit);
+            int y = depth * PNG_V_GAP + PNG_V_GAP / 2;
+            if (parentRank >= 0)
+                g.drawLine((int) ((parentRank + 0.5) * unit), y - PNG_V_GAP, x, y);
+            if (node.getSize() * unit < 1)
+            {
+                g.drawLine(x, y, x, y + node.getHeight() * PNG_V_GAP);
+                return false;
+            }
+            if (radius > 0)
+                g.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+            return true;
+        });
+        g.dispose();
+
+        if (!ImageIO.write(image, "png", file.toFile()))
+            throw new IOException("No PNG writer available");
+    }
+
+
+    private static int size(BSTNode<?, ?> node)
+    {
+        return node == null ? 0 : node.getSize();
+    }
+
+
+    /**
+     * Exports a random tree of the given size, to check the layout of large trees
+     *
+     * @param args  the number of keys, then the file to write, ending in .svg or .png
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("Usage: java TreeLayout <keys> <file.svg|file.png>");
+            System.exit(2);
+        }
+
+        int count = Integer.parseInt(args[0]);
+        Random random = new Random(count);
+        BST<Integer, Integer> tree = new BST<>();
+        while (tree.size(tree.getRoot()) < count)
+            tree.put(random.nextInt(), 0);
+
+        long start = System.nanoTime();
+        Path file = Paths.get(args[1]);
+        if (args[1].endsWith(".svg"))
+            writeSvg(tree, file);
+        else
+            writePng(tree, file, 4096);
+        System.out.printf("Wrote %s in %.1f s%n", file, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,37 @@
+package bst;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ILL_Result;
+
+/**
+ * Two puts of different keys must both land, with a size that counts both
+ */
+@JCStressTest
+@Outcome(id = "2, 1, 2", expect = Expect.ACCEPTABLE, desc = "Both puts landed")
+@Outcome(expect = Expect.FORBIDDEN, desc = "A put was lost or miscounted")
+@State
+public class ConcurrentBSTPutPutTest {
+    private final ConcurrentBST<Integer, Integer> tree = new ConcurrentBST<>();
+
+    @Actor
+    public void first() {
+        tree.put(1, 1);
+    }
+
+    @Actor
+    public void second() {
+        tree.put(2, 2);
+    }
+
+    @Arbiter
+    public void check(ILL_Result r) {
+        r.r1 = tree.size();
+        r.r2 = tree.get(1);
+        r.r3 = tree.get(2);
+    }
+}
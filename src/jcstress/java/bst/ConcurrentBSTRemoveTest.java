@@ -0,0 +1,42 @@
+package bst;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LLL_Result;
+
+/**
+ * Removing the root must not hide its neighbours from an optimistic reader
+ *
+ * The tree holds 1, 2 and 3 with 2 at the root, so removing 2 replaces it by its successor.
+ * A reader racing that removal may or may not see 2, but it must always find 1 and 3, and
+ * the successor of 1 is 2 or, once 2 is gone, 3.
+ */
+@JCStressTest
+@Outcome(id = "1, 3, 2", expect = Expect.ACCEPTABLE, desc = "The reader ran before the remove")
+@Outcome(id = "1, 3, 3", expect = Expect.ACCEPTABLE, desc = "The reader ran after the remove")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The removal hid a key that was there all along")
+@State
+public class ConcurrentBSTRemoveTest {
+    private final ConcurrentBST<Integer, Integer> tree = new ConcurrentBST<>();
+
+    public ConcurrentBSTRemoveTest() {
+        tree.put(1, 1);
+        tree.put(2, 2);
+        tree.put(3, 3);
+    }
+
+    @Actor
+    public void writer() {
+        tree.remove(2);
+    }
+
+    @Actor
+    public void reader(LLL_Result r) {
+        r.r1 = tree.get(1);
+        r.r2 = tree.get(3);
+        r.r3 = tree.successor(1);
+    }
+}
@@ -0,0 +1,41 @@
+package bst;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LLL_Result;
+
+/**
+ * A put() that rotates the root must not hide the keys it moves from an optimistic reader
+ *
+ * The tree holds 1 and 2 before the actors start, so putting 3 rotates 2 up to the root
+ * and 1 down a level. A reader racing that rotation may or may not see 3, but it must
+ * always find 1 and 2, and the predecessor of 2.
+ */
+@JCStressTest
+@Outcome(id = "1, 1, null", expect = Expect.ACCEPTABLE, desc = "The reader ran before the put")
+@Outcome(id = "1, 1, 3", expect = Expect.ACCEPTABLE, desc = "The reader ran after the put")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The rotation hid a key that was there all along")
+@State
+public class ConcurrentBSTRotationTest {
+    private final ConcurrentBST<Integer, Integer> tree = new ConcurrentBST<>();
+
+    public ConcurrentBSTRotationTest() {
+        tree.put(1, 1);
+        tree.put(2, 2);
+    }
+
+    @Actor
+    public void writer() {
+        tree.put(3, 3);
+    }
+
+    @Actor
+    public void reader(LLL_Result r) {
+        r.r1 = tree.get(1);
+        r.r2 = tree.predecessor(2);
+        r.r3 = tree.get(3);
+    }
+}
@@ -0,0 +1,225 @@
+package bst;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hammers ConcurrentBST and ShardedBST with concurrent writers and readers and checks every
+ * answer against what the threads know must hold
+ *
+ * The multiples of 4 below RANGE are put before the threads start and never touched again,
+ * so every reader knows they are present: get() must find them, and predecessor() and
+ * successor() may never skip over one, however the writers rotate the tree around them.
+ * Every other key belongs to exactly one writer, which puts and removes it at random and
+ * checks after each change that get() returns what it last wrote. The writers also insert
+ * ever larger fresh keys, which keeps growing the last shard of a ShardedBST and so keeps
+ * triggering rebalance() under the readers. At the end the contents must equal the union
+ * of what the writers wrote, and the tree must still be a valid AVL tree.
+ *
+ *     ./gradlew stress -Pstress='seconds threads'
+ *
+ * runs each map for the given number of seconds (10 by default) with the given number of
+ * writers and as many readers (2 by default), and exits with 1 on the first violation.
+ */
+public final class ConcurrentStress {
+    private static final int RANGE = 1 << 16; // Keys below this are pinned or owned
+    private static final int SHARDS = 8;
+
+    /**
+     * The operations the stress test needs from either map
+     */
+    private interface Target {
+        void put(Integer key, Integer value);
+        Integer remove(Integer key);
+        Integer get(Integer key);
+        Integer predecessor(Integer key);
+        Integer successor(Integer key);
+        List<Integer> inOrder();
+        int size();
+        void verify(); // Checks the structure once no thread runs any more
+    }
+
+    private ConcurrentStress() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        ConcurrentBST<Integer, Integer> tree = new ConcurrentBST<>();
+        boolean passed = run("ConcurrentBST", new Target() {
+            public void put(Integer key, Integer value) { tree.put(key, value); }
+            public Integer remove(Integer key) { return tree.remove(key); }
+            public Integer get(Integer key) { return tree.get(key); }
+            public Integer predecessor(Integer key) { return tree.predecessor(key); }
+            public Integer successor(Integer key) { return tree.successor(key); }
+            public List<Integer> inOrder() { return tree.inOrder(); }
+            public int size() { return tree.size(); }
+            public void verify() { verifyTree(tree.snapshot().getRoot()); }
+        }, seconds, threads);
+
+        // Split points above every pinned key put everything in one shard at first
+        Integer[] splitPoints = new Integer[SHARDS - 1];
+        for (int i = 0; i < splitPoints.length; i++)
+            splitPoints[i] = RANGE + i;
+        ShardedBST<Integer, Integer> sharded = new ShardedBST<>(splitPoints);
+        passed &= run("ShardedBST", new Target() {
+            public void put(Integer key, Integer value) { sharded.put(key, value); }
+            public Integer remove(Integer key) { return sharded.remove(key); }
+            public Integer get(Integer key) { return sharded.get(key); }
+            public Integer predecessor(Integer key) { return sharded.predecessor(key); }
+            public Integer successor(Integer key) { return sharded.successor(key); }
+            public List<Integer> inOrder() { return sharded.inOrder(); }
+            public int size() { return sharded.size(); }
+            public void verify() { }
+        }, seconds, threads);
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Runs the writers and readers against one map and reports whether every check held
+     */
+    private static boolean run(String name, Target target, int seconds, int writers)
+            throws InterruptedException {
+        for (int key = 0; key < RANGE; key += 4)
+            target.put(key, key);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong operations = new AtomicLong();
+        List<Map<Integer, Integer>> written = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int id = w;
+            Map<Integer, Integer> mine = new HashMap<>();
+            written.add(mine);
+            threads.add(new Thread(() -> {
+                Random random = new Random(id);
+                int fresh = 0;
+                long count = 0;
+                while (!stop.get()) {
+                    int key;
+                    if (random.nextInt(4) == 0)
+                        key = RANGE + 4 * (fresh++ * writers + id) + 1;
+                    else
+                        key = 4 * (random.nextInt(RANGE / 4 / writers) * writers + id) + 1 + random.nextInt(3);
+
+                    if (key < RANGE && random.nextBoolean()) {
+                        check(same(target.remove(key), mine.remove(key)), "remove(" + key + ") returned a stale value");
+                    } else {
+                        int value = random.nextInt();
+                        target.put(key, value);
+                        mine.put(key, value);
+                    }
+                    check(same(target.get(key), mine.get(key)), "get(" + key + ") missed the writer's own change");
+                    count++;
+                }
+                operations.addAndGet(count);
+            }));
+        }
+
+        for (int r = 0; r < writers; r++) {
+            int id = r;
+            threads.add(new Thread(() -> {
+                Random random = new Random(-1 - id);
+                long count = 0;
+                while (!stop.get()) {
+                    int query = random.nextInt(RANGE);
+                    int pinned = query & ~3;
+                    check(same(target.get(pinned), pinned), "get(" + pinned + ") missed a pinned key");
+
+                    Integer predecessor = target.predecessor(query);
+                    int below = query % 4 == 0 ? query - 4 : pinned; // The largest pinned key < query
+                    if (below >= 0)
+                        check(predecessor != null && predecessor < query && predecessor >= below,
+                                "predecessor(" + query + ") = " + predecessor + " skipped " + below);
+
+                    Integer successor = target.successor(query);
+                    int above = pinned + 4; // The smallest pinned key > query
+                    if (above < RANGE)
+                        check(successor != null && successor > query && successor <= above,
+                                "successor(" + query + ") = " + successor + " skipped " + above);
+                    count++;
+                }
+                operations.addAndGet(count);
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((t, e) -> {
+                failure.compareAndSet(null, e);
+                stop.set(true);
+            });
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread thread : threads)
+            thread.join();
+
+        if (failure.get() == null) {
+            try {
+                TreeMap<Integer, Integer> expected = new TreeMap<>();
+                for (int key = 0; key < RANGE; key += 4)
+                    expected.put(key, key);
+                for (Map<Integer, Integer> mine : written)
+                    expected.putAll(mine);
+                check(target.inOrder().equals(new ArrayList<>(expected.keySet())), "the final keys differ from the writes");
+                check(target.size() == expected.size(), "size() differs from the number of keys");
+                for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+                    check(same(target.get(entry.getKey()), entry.getValue()), "get(" + entry.getKey() + ") lost a write");
+                target.verify();
+            } catch (AssertionError e) {
+                failure.set(e);
+            }
+        }
+
+        if (failure.get() != null) {
+            System.out.printf("%s FAILED after %,d operations: %s%n", name, operations.get(), failure.get());
+            return false;
+        }
+        System.out.printf("%s passed %,d operations with %d writers and %d readers in %d s%n",
+                name, operations.get(), writers, writers, seconds);
+        return true;
+    }
+
+    /**
+     * Checks the order, heights, balance factors and sizes of a quiescent tree
+     *
+     * @return  the height of node
+     */
+    static int verifyTree(BSTNode<Integer, Integer> node) {
+        if (node == null)
+            return -1;
+        BSTNode<Integer, Integer> left = node.getLeft();
+        BSTNode<Integer, Integer> right = node.getRight();
+        check(left == null || left.getKey() < node.getKey(), "keys out of order at " + node.getKey());
+        check(right == null || right.getKey() > node.getKey(), "keys out of order at " + node.getKey());
+        int leftHeight = verifyTree(left);
+        int rightHeight = verifyTree(right);
+        check(Math.abs(leftHeight - rightHeight) <= 1, "unbalanced at " + node.getKey());
+        check(node.getHeight() == 1 + Math.max(leftHeight, rightHeight), "wrong height at " + node.getKey());
+        check(node.getBalanceFactor() == leftHeight - rightHeight, "wrong balance factor at " + node.getKey());
+        int size = 1 + (left == null ? 0 : left.getSize()) + (right == null ? 0 : right.getSize());
+        check(node.getSize() == size, "wrong size at " + node.getKey());
+        return node.getHeight();
+    }
+
+    private static boolean same(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,229 @@
+package bst;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs random operations on a BST and a TreeMap side by side and fails on the first difference
+ *
+ * The operations cover the bulk paths that single puts never reach: putAll() batches small
+ * enough to be unioned by splitting and joining, batches large enough to be merged and
+ * rebuilt, batches with repeated keys where the last pair must win, and sorted maps that
+ * skip the sort. removeRange(), pollFirst() and pollLast() run between them. Snapshots taken
+ * along the way must keep their contents while the tree changes, and cursors must agree
+ * with the TreeMap as they seek and step, and fail fast once the tree changes under them.
+ * A put() to the key a cursor is on, even right after a snapshot, must leave the cursor
+ * reading the new value or failing fast.
+ * Every tree is checked to be a valid AVL tree at intervals, for both node kinds.
+ *
+ *     ./gradlew differentialCheck -PdifferentialCheck='seeds operations'
+ *
+ * runs the given number of seeds (8 by default) of the given number of operations each
+ * (10000 by default). It is part of ./gradlew check.
+ */
+public final class DifferentialCheck {
+    private static final int KEYS = 4096; // Keys are drawn from 0..KEYS-1, so they collide often
+    private static final int CHECK_INTERVAL = 1000; // Operations between full comparisons
+    private static final int SNAPSHOTS = 4; // Snapshots kept alive at a time
+
+    private DifferentialCheck() {
+    }
+
+    public static void main(String[] args) {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        for (int seed = 0; seed < seeds; seed++) {
+            run("new BST()", BST::new, seed, operations);
+            run("BST.compact()", BST::compact, seed, operations);
+        }
+        System.out.printf("%d seeds of %,d operations matched TreeMap for both node kinds%n", seeds, operations);
+    }
+
+    private static void run(String kind, Supplier<BST<Integer, Integer>> factory, int seed, int operations) {
+        Random random = new Random(seed);
+        BST<Integer, Integer> tree = factory.get();
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        List<BST<Integer, Integer>> snapshots = new ArrayList<>();
+        List<TreeMap<Integer, Integer>> snapshotModels = new ArrayList<>();
+
+        for (int op = 1; op <= operations; op++) {
+            String where = kind + ", seed " + seed + ", operation " + op;
+            int key = random.nextInt(KEYS);
+            switch (random.nextInt(13)) {
+            case 0:
+            case 1:
+            case 2: {
+                int value = random.nextInt();
+                tree.put(key, value);
+                model.put(key, value);
+                break;
+            }
+            case 3:
+            case 4:
+                check(same(tree.remove(key), model.remove(key)), where, "remove(" + key + ")");
+                break;
+            case 5: // A small batch, unioned by split and join once the tree is large enough
+                putAll(tree, model, random, 1 + random.nextInt(1 + model.size() / 16));
+                break;
+            case 6: // A large batch, merged and rebuilt
+                putAll(tree, model, random, 1 + model.size() / 4 + random.nextInt(KEYS / 4));
+                break;
+            case 7: { // A sorted map, which skips the sort, or a HashMap, which does not
+                Map<Integer, Integer> batch = random.nextBoolean() ? new TreeMap<>() : new HashMap<>();
+                for (int i = random.nextInt(64); i > 0; i--)
+                    batch.put(random.nextInt(KEYS), random.nextInt());
+                tree.putAll(batch);
+                model.putAll(batch);
+                break;
+            }
+            case 8: {
+                int hi = key + random.nextInt(random.nextBoolean() ? 16 : KEYS / 8);
+                int expected = model.subMap(key, true, hi, true).size();
+                BSTCursor<Integer, Integer> cursor = tree.cursor();
+                boolean positioned = cursor.first();
+                check(tree.removeRange(key, hi) == expected, where, "removeRange(" + key + ", " + hi + ")");
+                model.subMap(key, true, hi, true).clear();
+                if (positioned)
+                    check(failsFast(cursor) == (expected > 0), where, "cursor after removeRange() of " + expected + " keys");
+                break;
+            }
+            case 9: {
+                Map.Entry<Integer, Integer> polled = random.nextBoolean() ? tree.pollFirst() : tree.pollLast();
+                if (polled == null)
+                    check(model.isEmpty(), where, "poll of a non-empty tree returned null");
+                else
+                    check(same(model.remove(polled.getKey()), polled.getValue()), where, "poll returned " + polled);
+                break;
+            }
+            case 10:
+                if (snapshots.size() == SNAPSHOTS) {
+                    snapshots.remove(0);
+                    snapshotModels.remove(0);
+                }
+                snapshots.add(tree.snapshot());
+                snapshotModels.add(new TreeMap<>(model));
+                break;
+            case 11:
+                checkCursorAfterUpdate(tree, model, random, key, where);
+                break;
+            default:
+                checkCursor(tree, model, random, key, where);
+            }
+
+            if (op % CHECK_INTERVAL == 0) {
+                checkContents(tree, model, where);
+                for (int i = 0; i < snapshots.size(); i++)
+                    checkContents(snapshots.get(i), snapshotModels.get(i), where + ", snapshot " + i);
+            }
+        }
+    }
+
+    /**
+     * Puts a batch of count random pairs, with repeated keys, by putAll(K[], V[])
+     */
+    private static void putAll(BST<Integer, Integer> tree, TreeMap<Integer, Integer> model, Random random, int count) {
+        Integer[] keys = new Integer[count];
+        Integer[] values = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = i > 0 && random.nextInt(4) == 0 ? keys[random.nextInt(i)] : random.nextInt(KEYS);
+            values[i] = random.nextInt();
+        }
+        tree.putAll(keys, values);
+        for (int i = 0; i < count; i++)
+            model.put(keys[i], values[i]); // The last pair of a repeated key wins
+    }
+
+    /**
+     * Seeks a cursor to a key, steps it both ways comparing every entry with the model,
+     * and checks that it fails fast after the tree is changed
+     */
+    private static void checkCursor(BST<Integer, Integer> tree, TreeMap<Integer, Integer> model, Random random,
+                                    int key, String where) {
+        BSTCursor<Integer, Integer> cursor = tree.cursor();
+        boolean floor = random.nextBoolean();
+        Map.Entry<Integer, Integer> expected = floor ? model.floorEntry(key) : model.ceilingEntry(key);
+        check((floor ? cursor.seekFloor(key) : cursor.seek(key)) == (expected != null), where, "seek(" + key + ")");
+
+        for (int step = 0; step < 8 && expected != null; step++) {
+            check(cursor.key().equals(expected.getKey()) && cursor.value().equals(expected.getValue()), where,
+                    "cursor at " + cursor.key() + "=" + cursor.value() + " instead of " + expected);
+            boolean forward = random.nextBoolean();
+            expected = forward ? model.higherEntry(expected.getKey()) : model.lowerEntry(expected.getKey());
+            check((forward ? cursor.next() : cursor.prev()) == (expected != null), where, "cursor step");
+        }
+
+        if (cursor.first() && !model.containsKey(KEYS)) {
+            tree.put(KEYS, 0);
+            check(failsFast(cursor), where, "cursor after a put of a new key");
+            tree.remove(KEYS);
+        }
+    }
+
+    /**
+     * Puts a new value for the key a cursor is on, half the time right after a snapshot, and
+     * checks that the cursor either reads the new value and moves on correctly, or throws
+     * ConcurrentModificationException, but never reads the nodes the put copied away from
+     */
+    private static void checkCursorAfterUpdate(BST<Integer, Integer> tree, TreeMap<Integer, Integer> model,
+                                               Random random, int key, String where) {
+        BSTCursor<Integer, Integer> cursor = tree.cursor();
+        if (!cursor.seek(key))
+            return;
+        Integer current = cursor.key();
+        if (random.nextBoolean())
+            tree.snapshot();
+        Integer value = random.nextInt();
+        tree.put(current, value);
+        model.put(current, value);
+
+        try {
+            check(cursor.value().equals(value), where, "cursor read the stale value of " + current + " after a put");
+            Map.Entry<Integer, Integer> expected = model.higherEntry(current);
+            check(cursor.next() == (expected != null), where, "cursor step after a put");
+            if (expected != null)
+                check(cursor.key().equals(expected.getKey()) && cursor.value().equals(expected.getValue()), where,
+                        "cursor at " + cursor.key() + "=" + cursor.value() + " instead of " + expected + " after a put");
+        } catch (ConcurrentModificationException e) {
+            // Failing fast is the other correct answer
+        }
+    }
+
+    /**
+     * Returns whether a positioned cursor throws ConcurrentModificationException when moved
+     */
+    private static boolean failsFast(BSTCursor<Integer, Integer> cursor) {
+        try {
+            cursor.next();
+            return false;
+        } catch (ConcurrentModificationException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Compares the keys, values and size of a tree with the model and checks its structure
+     */
+    private static void checkContents(BST<Integer, Integer> tree, TreeMap<Integer, Integer> model, String where) {
+        check(tree.inOrder().equals(new ArrayList<>(model.keySet())), where, "keys differ from TreeMap");
+        for (Map.Entry<Integer, Integer> entry : model.entrySet())
+            check(same(tree.get(entry.getKey()), entry.getValue()), where, "get(" + entry.getKey() + ")");
+        check(tree.size(tree.getRoot()) == model.size(), where, "size differs from TreeMap");
+        ConcurrentStress.verifyTree(tree.getRoot());
+    }
+
+    private static boolean same(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static void check(boolean condition, String where, String message) {
+        if (!condition)
+            throw new AssertionError(where + ": " + message);
+    }
+}
@@ -0,0 +1,51 @@
+package bst;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LLLL_Result;
+
+/**
+ * A put, a remove and a get racing rebalance() must neither be lost nor miss a key
+ *
+ * All of the keys 0..9 start in the first of five shards, so rebalance() redraws the
+ * bounds and moves them into new shards while the other actors route through the old ones.
+ */
+@JCStressTest
+@Outcome(id = "3, 10, null, 10", expect = Expect.ACCEPTABLE, desc = "Nothing was lost")
+@Outcome(expect = Expect.FORBIDDEN, desc = "A write was lost or a key was missed")
+@State
+public class ShardedBSTRebalanceTest {
+    private final ShardedBST<Integer, Integer> map = new ShardedBST<>(new Integer[] {100, 200, 300, 400});
+
+    public ShardedBSTRebalanceTest() {
+        for (int key = 0; key < 10; key++)
+            map.put(key, key);
+    }
+
+    @Actor
+    public void rebalancer() {
+        map.rebalance();
+    }
+
+    @Actor
+    public void writer() {
+        map.put(10, 10);
+        map.remove(7);
+    }
+
+    @Actor
+    public void reader(LLLL_Result r) {
+        r.r1 = map.get(3);
+    }
+
+    @Arbiter
+    public void check(LLLL_Result r) {
+        r.r2 = map.get(10);
+        r.r3 = map.get(7);
+        r.r4 = map.size();
+    }
+}
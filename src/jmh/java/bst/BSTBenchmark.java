@@ -0,0 +1,208 @@
+package bst;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks every public BST operation against java.util.TreeMap
+ *
+ * Each operation runs on trees of 1K to 10M keys in the orders and query skews described
+ * in Workload. The point operations report nanoseconds per call; put builds a whole tree
+ * and remove empties one, and inOrder, reverseOrder and kSmallest visit many keys, so those
+ * report microseconds per call. Narrow a run down with JMH options, e.g.
+ *
+ *     ./gradlew jmh -Pjmh='BSTBenchmark.get -p size=1000000 -p distribution=zipf'
+ *
+ * and compare the results of two builds to catch regressions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Thread)
+public class BSTBenchmark {
+    private static final int K = 100;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"sequential", "random", "zipf"})
+    String distribution;
+
+    Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = Workload.keys(distribution, size);
+    }
+
+    /**
+     * A tree and a map of every key, with the queries to run against them
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        BST<Integer, Integer> tree;
+        TreeMap<Integer, Integer> map;
+        private Integer[] queries;
+        private int next; // Index of the next query
+
+        @Setup(Level.Trial)
+        public void setUp(BSTBenchmark benchmark) {
+            tree = buildTree(benchmark.keys);
+            map = buildTreeMap(benchmark.keys);
+            queries = Workload.queries(benchmark.distribution, benchmark.keys);
+        }
+
+        Integer nextQuery() {
+            return queries[next++ & (Workload.QUERIES - 1)];
+        }
+    }
+
+    static BST<Integer, Integer> buildTree(Integer[] keys) {
+        BST<Integer, Integer> tree = new BST<>();
+        for (Integer key : keys)
+            tree.put(key, key);
+        return tree;
+    }
+
+    static TreeMap<Integer, Integer> buildTreeMap(Integer[] keys) {
+        TreeMap<Integer, Integer> map = new TreeMap<>();
+        for (Integer key : keys)
+            map.put(key, key);
+        return map;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public BST<Integer, Integer> putBST() {
+        return buildTree(keys);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TreeMap<Integer, Integer> putTreeMap() {
+        return buildTreeMap(keys);
+    }
+
+    @Benchmark
+    public Integer getBST(Filled filled) {
+        return filled.tree.get(filled.nextQuery());
+    }
+
+    @Benchmark
+    public Integer getTreeMap(Filled filled) {
+        return filled.map.get(filled.nextQuery());
+    }
+
+    @Benchmark
+    public Integer predecessorBST(Filled filled) {
+        return filled.tree.predecessor(filled.nextQuery());
+    }
+
+    @Benchmark
+    public Integer predecessorTreeMap(Filled filled) {
+        return filled.map.lowerKey(filled.nextQuery());
+    }
+
+    @Benchmark
+    public Integer successorBST(Filled filled) {
+        return filled.tree.successor(filled.nextQuery());
+    }
+
+    @Benchmark
+    public Integer successorTreeMap(Filled filled) {
+        return filled.map.higherKey(filled.nextQuery());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Integer> inOrderBST(Filled filled) {
+        return filled.tree.inOrder();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Integer> inOrderTreeMap(Filled filled) {
+        return new ArrayList<>(filled.map.keySet());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Integer> reverseOrderBST(Filled filled) {
+        return filled.tree.reverseOrder();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Integer> reverseOrderTreeMap(Filled filled) {
+        return new ArrayList<>(filled.map.descendingKeySet());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Integer> kSmallestBST(Filled filled) {
+        return filled.tree.kSmallest(K);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Integer> kSmallestTreeMap(Filled filled) {
+        List<Integer> smallest = new ArrayList<>(K);
+        for (Integer key : filled.map.keySet())
+        {
+            if (smallest.size() == K)
+                break;
+            smallest.add(key);
+        }
+        return smallest;
+    }
+
+    /**
+     * A full tree for every call of a remove benchmark, built outside the measured time.
+     * Emptying even the smallest tree takes tens of microseconds, which dwarfs the cost
+     * of the per-invocation setup.
+     */
+    @State(Scope.Thread)
+    public static class Full {
+        BST<Integer, Integer> tree;
+        TreeMap<Integer, Integer> map;
+
+        @Setup(Level.Invocation)
+        public void setUp(BSTBenchmark benchmark) {
+            tree = buildTree(benchmark.keys);
+            map = buildTreeMap(benchmark.keys);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public BST<Integer, Integer> removeBST(Full full) {
+        for (Integer key : keys)
+            full.tree.remove(key);
+        return full.tree;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TreeMap<Integer, Integer> removeTreeMap(Full full) {
+        for (Integer key : keys)
+            full.map.remove(key);
+        return full.map;
+    }
+}
@@ -0,0 +1,201 @@
+package bst;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks ConcurrentBST and ShardedBST against java.util.concurrent.ConcurrentSkipListMap
+ *
+ * Each group runs three readers calling get(), predecessor() and successor() against one
+ * writer that removes a key and puts it back, so the map keeps its size while the reads
+ * race rotations and, for ConcurrentBST, fail validation. The get benchmarks outside the
+ * groups show the uncontended cost, e.g.
+ *
+ *     ./gradlew jmh -Pjmh='ConcurrentBenchmark -p size=1000000'
+ *
+ * JMH reports the score of every thread of a group on its own line, so the read and
+ * write costs can be compared separately.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+    private static final int SHARDS = 16;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"random", "zipf"})
+    String distribution;
+
+    Integer[] queries;
+    ConcurrentBST<Integer, Integer> tree;
+    ShardedBST<Integer, Integer> sharded;
+    ConcurrentSkipListMap<Integer, Integer> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] keys = Workload.keys(distribution, size);
+        queries = Workload.queries(distribution, keys);
+
+        Integer[] splitPoints = new Integer[SHARDS - 1];
+        for (int i = 0; i < splitPoints.length; i++)
+            splitPoints[i] = (int) ((long) size * (i + 1) / SHARDS);
+
+        tree = new ConcurrentBST<>();
+        sharded = new ShardedBST<>(splitPoints);
+        map = new ConcurrentSkipListMap<>();
+        for (Integer key : keys) {
+            tree.put(key, key);
+            sharded.put(key, key);
+            map.put(key, key);
+        }
+    }
+
+    /**
+     * The position of one thread in the query stream; each thread starts at its own offset
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static int offset;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            synchronized (Cursor.class) {
+                next = offset;
+                offset += Workload.QUERIES / 8;
+            }
+        }
+
+        Integer nextQuery(Integer[] queries) {
+            return queries[next++ & (Workload.QUERIES - 1)];
+        }
+    }
+
+    @Benchmark
+    public Integer getConcurrentBST(Cursor cursor) {
+        return tree.get(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    public Integer getShardedBST(Cursor cursor) {
+        return sharded.get(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    public Integer getSkipList(Cursor cursor) {
+        return map.get(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("concurrentBST")
+    @GroupThreads(1)
+    public Integer writeConcurrentBST(Cursor cursor) {
+        Integer key = cursor.nextQuery(queries);
+        tree.remove(key);
+        tree.put(key, key);
+        return key;
+    }
+
+    @Benchmark
+    @Group("concurrentBST")
+    @GroupThreads(1)
+    public Integer readGetConcurrentBST(Cursor cursor) {
+        return tree.get(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("concurrentBST")
+    @GroupThreads(1)
+    public Integer readPredecessorConcurrentBST(Cursor cursor) {
+        return tree.predecessor(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("concurrentBST")
+    @GroupThreads(1)
+    public Integer readSuccessorConcurrentBST(Cursor cursor) {
+        return tree.successor(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("shardedBST")
+    @GroupThreads(1)
+    public Integer writeShardedBST(Cursor cursor) {
+        Integer key = cursor.nextQuery(queries);
+        sharded.remove(key);
+        sharded.put(key, key);
+        return key;
+    }
+
+    @Benchmark
+    @Group("shardedBST")
+    @GroupThreads(1)
+    public Integer readGetShardedBST(Cursor cursor) {
+        return sharded.get(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("shardedBST")
+    @GroupThreads(1)
+    public Integer readPredecessorShardedBST(Cursor cursor) {
+        return sharded.predecessor(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("shardedBST")
+    @GroupThreads(1)
+    public Integer readSuccessorShardedBST(Cursor cursor) {
+        return sharded.successor(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("skipList")
+    @GroupThreads(1)
+    public Integer writeSkipList(Cursor cursor) {
+        Integer key = cursor.nextQuery(queries);
+        map.remove(key);
+        map.put(key, key);
+        return key;
+    }
+
+    @Benchmark
+    @Group("skipList")
+    @GroupThreads(1)
+    public Integer readGetSkipList(Cursor cursor) {
+        return map.get(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("skipList")
+    @GroupThreads(1)
+    public Integer readPredecessorSkipList(Cursor cursor) {
+        return map.lowerKey(cursor.nextQuery(queries));
+    }
+
+    @Benchmark
+    @Group("skipList")
+    @GroupThreads(1)
+    public Integer readSuccessorSkipList(Cursor cursor) {
+        return map.higherKey(cursor.nextQuery(queries));
+    }
+}
@@ -0,0 +1,37 @@
+package bst;
+
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+/**
+ * Prints the JOL layouts of both node classes and the footprint of a tree of each kind
+ *
+ * Run with ./gradlew footprint. The numbers depend on the JVM and its flags: the default
+ * HotSpot layout of 12-byte headers and compressed references gives 40 bytes per
+ * StandardBSTNode and 32 per compact BSTNode.
+ */
+public final class Footprint {
+    private static final int SIZE = 100_000;
+
+    private Footprint() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println(VM.current().details());
+        System.out.println(ClassLayout.parseClass(StandardBSTNode.class).toPrintable());
+        System.out.println(ClassLayout.parseClass(BSTNode.class).toPrintable());
+
+        report("new BST()", new BST<>());
+        report("BST.compact()", BST.compact());
+    }
+
+    private static void report(String name, BST<Integer, Integer> tree) {
+        Integer value = 0; // Shared by every entry, so the table shows the nodes and keys
+        for (int i = 0; i < SIZE; i++)
+            tree.put(i, value);
+
+        GraphLayout graph = GraphLayout.parseInstance(tree.getRoot());
+        System.out.printf("%s with %,d entries:%n%s%n", name, SIZE, graph.toFootprint());
+    }
+}
@@ -0,0 +1,112 @@
+package bst;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the loop-based get(), put(), predecessor() and successor() of BST with the
+ * recursive versions they replaced, kept in RecursiveBST
+ *
+ *     ./gradlew jmh -Pjmh='HotPathBenchmark -prof gc'
+ *
+ * also shows that the loops allocate nothing on the read path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class HotPathBenchmark {
+    @Param({"1000", "1000000"})
+    int size;
+
+    @Param({"sequential", "random", "zipf"})
+    String distribution;
+
+    private Integer[] keys;
+    private Integer[] queries;
+    private int next; // Index of the next query
+    private BST<Integer, Integer> iterative;
+    private RecursiveBST<Integer, Integer> recursive;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = Workload.keys(distribution, size);
+        queries = Workload.queries(distribution, keys);
+        iterative = buildIterative();
+        recursive = buildRecursive();
+    }
+
+    private BST<Integer, Integer> buildIterative() {
+        BST<Integer, Integer> tree = new BST<>();
+        for (Integer key : keys)
+            tree.put(key, key);
+        return tree;
+    }
+
+    private RecursiveBST<Integer, Integer> buildRecursive() {
+        RecursiveBST<Integer, Integer> tree = new RecursiveBST<>();
+        for (Integer key : keys)
+            tree.put(key, key);
+        return tree;
+    }
+
+    private Integer nextQuery() {
+        return queries[next++ & (Workload.QUERIES - 1)];
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public BST<Integer, Integer> putIterative() {
+        return buildIterative();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public RecursiveBST<Integer, Integer> putRecursive() {
+        return buildRecursive();
+    }
+
+    @Benchmark
+    public Integer getIterative() {
+        return iterative.get(nextQuery());
+    }
+
+    @Benchmark
+    public Integer getRecursive() {
+        return recursive.get(nextQuery());
+    }
+
+    @Benchmark
+    public Integer predecessorIterative() {
+        return iterative.predecessor(nextQuery());
+    }
+
+    @Benchmark
+    public Integer predecessorRecursive() {
+        return recursive.predecessor(nextQuery());
+    }
+
+    @Benchmark
+    public Integer successorIterative() {
+        return iterative.successor(nextQuery());
+    }
+
+    @Benchmark
+    public Integer successorRecursive() {
+        return recursive.successor(nextQuery());
+    }
+}
@@ -0,0 +1,131 @@
+package bst;
+
+/**
+ * The recursive get(), put(), predecessor() and successor() of BST before they became loops,
+ * kept only as the baseline of HotPathBenchmark
+ *
+ * Each level calls compareTo() twice, once for == 0 and once for < 0, as the originals did.
+ * Sizes come from the children, so the comparison is not skewed by the O(n) size walk
+ * that the originals also had.
+ */
+final class RecursiveBST<K extends Comparable<? super K>, V> {
+    private BSTNode<K, V> root;
+
+    void put(K key, V value) {
+        root = putHelper(root, key, value);
+    }
+    private BSTNode<K, V> putHelper(BSTNode<K, V> node, K key, V value) {
+        if (node == null)
+            return new StandardBSTNode<K, V>(key, value);
+
+        if (key.compareTo(node.getKey()) == 0)
+        {
+            node.setValue(value);
+            return node;
+        }
+
+        if (key.compareTo(node.getKey()) < 0)
+            node.setLeft(putHelper(node.getLeft(), key, value));
+        else
+            node.setRight(putHelper(node.getRight(), key, value));
+
+        return balance(node);
+    }
+
+    V get(K key) {
+        BSTNode<K, V> match = root == null ? null : getHelper(root, key);
+        return match == null ? null : match.getValue();
+    }
+    private BSTNode<K, V> getHelper(BSTNode<K, V> node, K key) {
+        if (key.compareTo(node.getKey()) == 0)
+            return node;
+
+        if (key.compareTo(node.getKey()) < 0)
+            return node.getLeft() == null ? null : getHelper(node.getLeft(), key);
+        else
+            return node.getRight() == null ? null : getHelper(node.getRight(), key);
+    }
+
+    K predecessor(K key) {
+        BSTNode<K, V> match = predecessorHelper(root, key);
+        return match == null ? null : match.getKey();
+    }
+    private BSTNode<K, V> predecessorHelper(BSTNode<K, V> node, K key) {
+        if (node == null)
+            return null;
+        if (node.getKey().compareTo(key) < 0)
+        {
+            BSTNode<K, V> larger = predecessorHelper(node.getRight(), key);
+            return larger == null ? node : larger;
+        }
+        return predecessorHelper(node.getLeft(), key);
+    }
+
+    K successor(K key) {
+        BSTNode<K, V> match = successorHelper(root, key);
+        return match == null ? null : match.getKey();
+    }
+    private BSTNode<K, V> successorHelper(BSTNode<K, V> node, K key) {
+        if (node == null)
+            return null;
+        if (node.getKey().compareTo(key) > 0)
+        {
+            BSTNode<K, V> smaller = successorHelper(node.getLeft(), key);
+            return smaller == null ? node : smaller;
+        }
+        return successorHelper(node.getRight(), key);
+    }
+
+    private int height(BSTNode<K, V> node) {
+        return node == null ? -1 : node.getHeight();
+    }
+
+    private int size(BSTNode<K, V> node) {
+        return node == null ? 0 : node.getSize();
+    }
+
+    private void update(BSTNode<K, V> node) {
+        node.setHeight(1 + Math.max(height(node.getLeft()), height(node.getRight())));
+        node.setSize(size(node.getLeft()) + 1 + size(node.getRight()));
+    }
+
+    private int balanceFactor(BSTNode<K, V> node) {
+        return height(node.getLeft()) - height(node.getRight());
+    }
+
+    private BSTNode<K, V> rotateRight(BSTNode<K, V> node) {
+        BSTNode<K, V> left = node.getLeft();
+        node.setLeft(left.getRight());
+        left.setRight(node);
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private BSTNode<K, V> rotateLeft(BSTNode<K, V> node) {
+        BSTNode<K, V> right = node.getRight();
+        node.setRight(right.getLeft());
+        right.setLeft(node);
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private BSTNode<K, V> balance(BSTNode<K, V> node) {
+        update(node);
+        int balanceFactor = balanceFactor(node);
+        if (balanceFactor > 1)
+        {
+            if (balanceFactor(node.getLeft()) < 0)
+                node.setLeft(rotateLeft(node.getLeft()));
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1)
+        {
+            if (balanceFactor(node.getRight()) > 0)
+                node.setRight(rotateRight(node.getRight()));
+            return rotateLeft(node);
+        }
+        return node;
+    }
+}
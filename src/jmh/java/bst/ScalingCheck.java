@@ -0,0 +1,63 @@
+package bst;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Fails if building a tree by put() scales worse than near-linearithmically
+ *
+ * Runs BSTBenchmark.putBST for 1M and 10M random keys and compares the time per key.
+ * O(n log n) work predicts it to grow by log(10M) / log(1M) = 1.17, and cache misses on
+ * the larger tree add to that. Size bookkeeping that walks subtrees makes put() O(n) and
+ * the time per key grow tenfold. Run with ./gradlew scalingCheck.
+ */
+public final class ScalingCheck {
+    private static final int SMALL = 1_000_000;
+    private static final int LARGE = 10_000_000;
+    private static final double MAX_GROWTH = 4; // Allowed growth of the time per key from SMALL to LARGE
+
+    private ScalingCheck() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BSTBenchmark.class.getName() + ".putBST$")
+                .param("size", String.valueOf(SMALL), String.valueOf(LARGE))
+                .param("distribution", "random")
+                .mode(Mode.SingleShotTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupIterations(1)
+                .measurementIterations(3)
+                .forks(1)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        double small = Double.NaN;
+        double large = Double.NaN;
+        for (RunResult result : results)
+        {
+            int size = Integer.parseInt(result.getParams().getParam("size"));
+            double nanosPerKey = result.getPrimaryResult().getScore() * 1e6 / size;
+            if (size == SMALL)
+                small = nanosPerKey;
+            else
+                large = nanosPerKey;
+        }
+
+        double growth = large / small;
+        System.out.printf("put: %.0f ns/key at %,d keys, %.0f ns/key at %,d keys, growth %.2f (at most %.1f)%n",
+                small, SMALL, large, LARGE, growth, MAX_GROWTH);
+        if (!(growth <= MAX_GROWTH))
+        {
+            System.err.println("put() no longer scales near-linearithmically");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package bst;
+
+import java.util.Random;
+
+/**
+ * Key sets and query streams shared by the benchmarks
+ *
+ * Only the order of keys matters to a search tree, so every key set is a permutation of
+ * the distinct keys 0..n-1, and the size of a key set is the size of the tree built from it.
+ * The distributions differ in the insertion order and in which keys the queries hit:
+ *
+ *     sequential  keys inserted in ascending order, queries uniform over the keys
+ *     random      keys inserted in random order, queries uniform over the keys
+ *     zipf        keys inserted in random order, queries skewed towards a few hot keys
+ *                 by a Zipfian distribution
+ */
+final class Workload {
+    static final int QUERIES = 1 << 20; // Enough that the queries do not fit in the branch predictor
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    private Workload() {
+    }
+
+    /**
+     * Returns the keys 0..count-1 in the insertion order of the named distribution
+     */
+    static Integer[] keys(String distribution, int count) {
+        Integer[] keys = new Integer[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = i;
+        if (!distribution.equals("sequential"))
+        {
+            Random random = new Random(count);
+            for (int i = count - 1; i > 0; i--)
+            {
+                int j = random.nextInt(i + 1);
+                Integer swap = keys[i];
+                keys[i] = keys[j];
+                keys[j] = swap;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns QUERIES lookups among the given keys, uniformly or, for "zipf", skewed towards
+     * a few hot keys
+     */
+    static Integer[] queries(String distribution, Integer[] keys) {
+        Random random = new Random(-keys.length);
+        Integer[] queries = new Integer[QUERIES];
+        Zipf zipf = new Zipf(keys.length, ZIPF_EXPONENT, random);
+        for (int i = 0; i < QUERIES; i++)
+            queries[i] = keys[distribution.equals("zipf") ? zipf.next() : random.nextInt(keys.length)];
+        return queries;
+    }
+
+    /**
+     * Zipfian sampler over the ranks 0..n-1 by rejection-inversion
+     * (Hormann and Derflinger, 1996), which needs no O(n) table
+     */
+    private static final class Zipf {
+        private final int n;
+        private final double s;
+        private final Random random;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double threshold;
+
+        Zipf(int n, double s, Random random) {
+            this.n = n;
+            this.s = s;
+            this.random = random;
+            hIntegralX1 = hIntegral(1.5) - 1.0;
+            hIntegralN = hIntegral(n + 0.5);
+            threshold = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+        }
+
+        int next() {
+            while (true)
+            {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) Math.max(1, Math.min(n, Math.round(x)));
+                if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k))
+                    return k - 1;
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-s * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1.0 - s) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1.0, x * (1.0 - s));
+            return Math.exp(helper1(t) * x);
+        }
+
+        /** log(1 + x) / x, accurate near 0 */
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+        }
+
+        /** (exp(x) - 1) / x, accurate near 0 */
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+        }
+    }
+}